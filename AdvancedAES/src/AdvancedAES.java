@@ -4,19 +4,21 @@ import java.security.*;
 import java.util.*;
 import java.nio.charset.StandardCharsets;
 import java.io.*;
+import java.nio.channels.*;
 import java.util.Base64; // For Base64 encoding/decoding in Java 9+
 
 public class AdvancedAES {
 
-    private static final String ALGORITHM = "AES";
-    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
-    private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256"; // PBKDF2 for key derivation
-    private static final String HMAC_ALGORITHM = "HmacSHA256";
-    private static final int KEY_SIZE = 256; // AES 256-bit key
-    private static final int IV_SIZE = 12; // 12 bytes for AES-GCM IV
-    private static final int TAG_SIZE = 128; // 128-bit authentication tag
-    private static final int SALT_SIZE = 16; // Salt size for KDF
-    private static final int PBKDF2_ITERATIONS = 10000; // Number of iterations for PBKDF2
+    static final String ALGORITHM = "AES";
+    static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256"; // PBKDF2 for key derivation
+    static final String HMAC_ALGORITHM = "HmacSHA256";
+    static final int KEY_SIZE = 256; // AES 256-bit key
+    static final int IV_SIZE = 12; // 12 bytes for AES-GCM IV
+    static final int TAG_SIZE = 128; // 128-bit authentication tag
+    static final int HMAC_SIZE = 32; // HMAC-SHA256 output size
+    static final int SALT_SIZE = 16; // Salt size for KDF
+    static final int PBKDF2_ITERATIONS = 10000; // Number of iterations for PBKDF2
 
     public static void main(String[] args) throws Exception {
         String password = "superSecurePassword";
@@ -32,97 +34,120 @@ public class AdvancedAES {
         // 3. Decrypt the ciphertext
         String decryptedData = decrypt(encryptedData, key);
         System.out.println("Decrypted Data: " + decryptedData);
+
+        // 4. Round-trip the same plaintext through the segmented stream format
+        ByteArrayOutputStream sealed = new ByteArrayOutputStream();
+        encrypt(new ByteArrayInputStream(plaintext.getBytes(StandardCharsets.UTF_8)), sealed, key);
+        ByteArrayOutputStream opened = new ByteArrayOutputStream();
+        decrypt(new ByteArrayInputStream(sealed.toByteArray()), opened, key);
+        System.out.println("Stream Decrypted Data: " + new String(opened.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    // Key material together with the salt and iteration count needed to derive it again
+    public static class DerivedKey {
+        private final SecretKey key;
+        private final byte[] salt;
+        private final int iterations;
+
+        DerivedKey(SecretKey key, byte[] salt, int iterations) {
+            this.key = key;
+            this.salt = salt.clone();
+            this.iterations = iterations;
+        }
+
+        public SecretKey getKey() { return key; }
+        public byte[] getSalt() { return salt.clone(); }
+        public int getIterations() { return iterations; }
     }
 
     // 1. Derive a key from the password using PBKDF2
     public static SecretKey deriveKeyUsingPBKDF2(String password) throws Exception {
+        return deriveKeyWithSalt(password).getKey();
+    }
+
+    // Derive with a fresh random salt and keep the salt, so the same key can be re-derived later
+    public static DerivedKey deriveKeyWithSalt(String password) throws Exception {
         // Generate random salt
         byte[] salt = new byte[SALT_SIZE];
-        new SecureRandom().nextBytes(salt);
+        AesGcmSession.random().nextBytes(salt);
+        return new DerivedKey(deriveKeyUsingPBKDF2(password, salt, PBKDF2_ITERATIONS), salt, PBKDF2_ITERATIONS);
+    }
 
-        // Initialize PBKDF2 with HMACSHA256
-        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, PBKDF2_ITERATIONS, KEY_SIZE);
-        SecretKeyFactory factory = SecretKeyFactory.getInstance(KDF_ALGORITHM);
-        byte[] derivedKey = factory.generateSecret(spec).getEncoded();
+    public static SecretKey deriveKeyUsingPBKDF2(String password, byte[] salt, int iterations) throws Exception {
+        byte[] derivedKey = deriveKeyMaterial(password, salt, iterations);
+        try {
+            // Return the AES key from PBKDF2-derived key material
+            return new SecretKeySpec(derivedKey, ALGORITHM);
+        } finally {
+            Arrays.fill(derivedKey, (byte) 0);
+        }
+    }
 
-        // Return the AES key from PBKDF2-derived key material
-        return new SecretKeySpec(derivedKey, ALGORITHM);
+    // Raw PBKDF2 output; the caller owns (and should zero) the returned array
+    static byte[] deriveKeyMaterial(String password, byte[] salt, int iterations) throws Exception {
+        // Initialize PBKDF2 with HMACSHA256
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_SIZE);
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(KDF_ALGORITHM);
+            return factory.generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
     }
 
-    // 2. Encrypt the plaintext using AES-GCM
+    // 2. Encrypt the plaintext using AES-GCM (pooled per-thread instances, see AesGcmSession)
     public static String encrypt(String plaintext, SecretKey key) throws Exception {
-        // Generate a random IV (Initialization Vector)
-        byte[] iv = new byte[IV_SIZE];
-        new SecureRandom().nextBytes(iv);
-
-        // Initialize the AES-GCM Cipher
-        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(TAG_SIZE, iv);
-        cipher.init(Cipher.ENCRYPT_MODE, key, gcmSpec);
-
-        // Encrypt the plaintext
-        byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-
-        // Generate HMAC for integrity
-        byte[] hmac = generateHMAC(iv, ciphertext);
-
-        // Combine IV, ciphertext, and HMAC into one array for transmission
-        byte[] encryptedData = new byte[IV_SIZE + ciphertext.length + hmac.length];
-        System.arraycopy(iv, 0, encryptedData, 0, IV_SIZE);
-        System.arraycopy(ciphertext, 0, encryptedData, IV_SIZE, ciphertext.length);
-        System.arraycopy(hmac, 0, encryptedData, IV_SIZE + ciphertext.length, hmac.length);
-
-        // Return Base64 encoded encrypted data
-        return Base64.getEncoder().encodeToString(encryptedData);
+        return new AesGcmSession(key).encrypt(plaintext);
     }
 
     // 3. Decrypt the ciphertext using AES-GCM with integrity check via HMAC
     public static String decrypt(String encryptedData, SecretKey key) throws Exception {
-        // Decode the encrypted data from Base64
-        byte[] encryptedBytes = Base64.getDecoder().decode(encryptedData);
-
-        // Extract the IV (first 12 bytes)
-        byte[] iv = new byte[IV_SIZE];
-        System.arraycopy(encryptedBytes, 0, iv, 0, IV_SIZE);
+        return new AesGcmSession(key).decrypt(encryptedData);
+    }
 
-        // Extract the ciphertext (everything between IV and HMAC)
-        int ciphertextLength = encryptedBytes.length - IV_SIZE - 32; // 32 bytes for HMAC
-        byte[] ciphertext = new byte[ciphertextLength];
-        System.arraycopy(encryptedBytes, IV_SIZE, ciphertext, 0, ciphertextLength);
+    // Batch variants: one arena in, one arena out (see AesGcmSession.encryptBatch)
+    public static AesBatch encryptBatch(List<byte[]> records, SecretKey key) throws Exception {
+        return new AesGcmSession(key).encryptBatch(records);
+    }
 
-        // Extract the HMAC (last 32 bytes)
-        byte[] hmac = new byte[32];
-        System.arraycopy(encryptedBytes, IV_SIZE + ciphertextLength, hmac, 0, 32);
+    public static AesBatch decryptBatch(AesBatch encrypted, SecretKey key) throws Exception {
+        return new AesGcmSession(key).decryptBatch(encrypted);
+    }
 
-        // Verify the HMAC for integrity
-        if (!verifyHMAC(iv, ciphertext, hmac)) {
-            throw new SecurityException("Integrity check failed: HMAC mismatch.");
-        }
+    // Stream variants: constant memory, one authenticated segment at a time (see StreamingAES)
+    public static void encrypt(InputStream in, OutputStream out, SecretKey key) throws Exception {
+        StreamingAES.encrypt(in, out, key);
+    }
 
-        // Initialize AES-GCM for decryption
-        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(TAG_SIZE, iv);
-        cipher.init(Cipher.DECRYPT_MODE, key, gcmSpec);
+    public static void decrypt(InputStream in, OutputStream out, SecretKey key) throws Exception {
+        StreamingAES.decrypt(in, out, key);
+    }
 
-        // Decrypt the ciphertext
-        byte[] decryptedBytes = cipher.doFinal(ciphertext);
+    public static void encrypt(FileChannel in, FileChannel out, SecretKey key) throws Exception {
+        StreamingAES.encrypt(Channels.newInputStream(in), Channels.newOutputStream(out), key);
+    }
 
-        // Return the plaintext
-        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    public static void decrypt(FileChannel in, FileChannel out, SecretKey key) throws Exception {
+        StreamingAES.decrypt(Channels.newInputStream(in), Channels.newOutputStream(out), key);
     }
 
-    // 4. Generates HMAC for integrity verification
-    private static byte[] generateHMAC(byte[] iv, byte[] ciphertext) throws Exception {
-        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+    // 4. Generates HMAC for integrity verification, written into out at outOffset
+    static void generateHMAC(byte[] iv, byte[] ciphertext, int offset, int length, byte[] out, int outOffset) throws Exception {
+        Mac mac = AesGcmSession.mac();
         SecretKeySpec secretKeySpec = new SecretKeySpec(iv, HMAC_ALGORITHM);
         mac.init(secretKeySpec);
-        mac.update(ciphertext);
-        return mac.doFinal();
+        mac.update(ciphertext, offset, length);
+        mac.doFinal(out, outOffset);
     }
 
-    // 5. Verifies HMAC for integrity
-    private static boolean verifyHMAC(byte[] iv, byte[] ciphertext, byte[] expectedHMAC) throws Exception {
-        byte[] computedHMAC = generateHMAC(iv, ciphertext);
-        return Arrays.equals(computedHMAC, expectedHMAC);
+    // 5. Verifies HMAC for integrity (constant-time comparison)
+    static boolean verifyHMAC(byte[] iv, byte[] ciphertext, int offset, int length, byte[] expected, int expectedOffset) throws Exception {
+        byte[] computedHMAC = new byte[HMAC_SIZE];
+        generateHMAC(iv, ciphertext, offset, length, computedHMAC, 0);
+        int diff = 0;
+        for (int i = 0; i < HMAC_SIZE; i++) {
+            diff |= computedHMAC[i] ^ expected[expectedOffset + i];
+        }
+        return diff == 0;
     }
 }
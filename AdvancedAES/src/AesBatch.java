@@ -0,0 +1,42 @@
+import java.util.Arrays;
+
+// A batch of records packed back to back into one array.
+// Record i occupies data[offsets[i], offsets[i + 1]), so n records need n + 1 offsets.
+public class AesBatch {
+
+    private final byte[] data;
+    private final int[] offsets;
+
+    public AesBatch(byte[] data, int[] offsets) {
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != data.length) {
+            throw new IllegalArgumentException("Offsets must start at 0 and end at data.length");
+        }
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    public int length(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    // Copy of one record, for callers that need it as its own array
+    public byte[] get(int index) {
+        return Arrays.copyOfRange(data, offsets[index], offsets[index + 1]);
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+}
@@ -0,0 +1,197 @@
+import javax.crypto.*;
+import javax.crypto.spec.*;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+// Compact, versioned binary envelope for AES-GCM messages.
+//
+// Layout:
+//   header     = version (1) | algorithm ID (1) | IV length (1) | tag length (1) | key ID (4)
+//   body       = IV | ciphertext+tag
+//   trailer    = HMAC-SHA256 over the ciphertext, only for ALG_AES_GCM_HMAC_SHA256
+//
+// ALG_AES_GCM relies on the GCM tag alone and skips the HMAC pass. Optional associated data is
+// authenticated after the header but never stored in the envelope; the receiver must supply it again.
+//
+// The header travels in clear text but is bound to the message as GCM associated data, so the
+// algorithm, lengths and key ID cannot be altered without failing the tag check. Lengths come from
+// the header rather than constants, so new algorithms can be added without changing the parser.
+// Base64 is optional and applied only as an outer layer.
+public class AesEnvelope {
+
+    static final byte VERSION = 1;
+    static final byte ALG_AES_GCM_HMAC_SHA256 = 1; // AES-GCM plus the legacy IV-keyed HMAC trailer
+    static final byte ALG_AES_GCM = 2; // AES-GCM, authenticated by its tag only
+    static final int HEADER_SIZE = 8;
+
+    // 1. Size of the envelope for a plaintext of the given length
+    public static int sealedSize(int plaintextLength) {
+        return sealedSize(plaintextLength, AesGcmSession.Mode.GCM_WITH_HMAC);
+    }
+
+    public static int sealedSize(int plaintextLength, AesGcmSession.Mode mode) {
+        int trailer = mode == AesGcmSession.Mode.GCM_WITH_HMAC ? AdvancedAES.HMAC_SIZE : 0;
+        return HEADER_SIZE + AdvancedAES.IV_SIZE + plaintextLength + AdvancedAES.TAG_SIZE / 8 + trailer;
+    }
+
+    // 2. Encrypt plaintext's remaining bytes into out; returns the number of bytes written
+    public static int encrypt(ByteBuffer plaintext, ByteBuffer out, SecretKey key, int keyId) throws Exception {
+        return encrypt(plaintext, out, key, keyId, AesGcmSession.Mode.GCM_WITH_HMAC, null);
+    }
+
+    public static int encrypt(ByteBuffer plaintext, ByteBuffer out, SecretKey key, int keyId,
+                              AesGcmSession.Mode mode, byte[] aad) throws Exception {
+        int start = out.position();
+        int tagLength = AdvancedAES.TAG_SIZE / 8;
+        if (out.remaining() < sealedSize(plaintext.remaining(), mode)) {
+            throw new IllegalArgumentException("Output buffer too small for envelope");
+        }
+
+        // Header
+        byte[] header = new byte[HEADER_SIZE];
+        header[0] = VERSION;
+        header[1] = mode == AesGcmSession.Mode.GCM_WITH_HMAC ? ALG_AES_GCM_HMAC_SHA256 : ALG_AES_GCM;
+        header[2] = (byte) AdvancedAES.IV_SIZE;
+        header[3] = (byte) tagLength;
+        ByteBuffer.wrap(header, 4, 4).putInt(keyId);
+        out.put(header);
+
+        // IV
+        byte[] iv = new byte[AdvancedAES.IV_SIZE];
+        AesGcmSession.random().nextBytes(iv);
+        out.put(iv);
+
+        // Ciphertext and tag, with the header as associated data
+        Cipher cipher = AesGcmSession.cipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+        cipher.updateAAD(header);
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        int ciphertextStart = out.position();
+        cipher.doFinal(plaintext, out);
+        if (mode == AesGcmSession.Mode.GCM_ONLY) {
+            return out.position() - start;
+        }
+
+        // HMAC trailer over the ciphertext just written
+        ByteBuffer ciphertext = out.duplicate();
+        ciphertext.limit(out.position());
+        ciphertext.position(ciphertextStart);
+        Mac mac = AesGcmSession.mac();
+        mac.init(new SecretKeySpec(iv, AdvancedAES.HMAC_ALGORITHM));
+        mac.update(ciphertext);
+        out.put(mac.doFinal());
+
+        return out.position() - start;
+    }
+
+    // 3. Decrypt one envelope (all remaining bytes of envelope) into out; returns the plaintext length
+    public static int decrypt(ByteBuffer envelope, ByteBuffer out, SecretKey key) throws Exception {
+        return decrypt(envelope, out, key, null);
+    }
+
+    public static int decrypt(ByteBuffer envelope, ByteBuffer out, SecretKey key, byte[] aad) throws Exception {
+        int start = out.position();
+        if (envelope.remaining() < HEADER_SIZE) {
+            throw new SecurityException("Integrity check failed: truncated envelope header.");
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        envelope.get(header);
+        if (header[0] != VERSION) {
+            throw new SecurityException("Unsupported envelope version: " + header[0]);
+        }
+        if (header[1] != ALG_AES_GCM_HMAC_SHA256 && header[1] != ALG_AES_GCM) {
+            throw new SecurityException("Unsupported envelope algorithm: " + header[1]);
+        }
+        int trailerSize = header[1] == ALG_AES_GCM_HMAC_SHA256 ? AdvancedAES.HMAC_SIZE : 0;
+        int ivLength = header[2] & 0xff;
+        int tagLength = header[3] & 0xff;
+        if (ivLength == 0 || tagLength < 12 || tagLength > 16) {
+            throw new SecurityException("Invalid envelope header.");
+        }
+        int ciphertextLength = envelope.remaining() - ivLength - trailerSize;
+        if (ciphertextLength < tagLength) {
+            throw new SecurityException("Integrity check failed: truncated envelope.");
+        }
+
+        byte[] iv = new byte[ivLength];
+        envelope.get(iv);
+        ByteBuffer ciphertext = envelope.slice();
+        ciphertext.limit(ciphertextLength);
+        envelope.position(envelope.position() + ciphertextLength);
+
+        // Verify the HMAC trailer (if any) before touching the cipher
+        if (trailerSize > 0) {
+            Mac mac = AesGcmSession.mac();
+            mac.init(new SecretKeySpec(iv, AdvancedAES.HMAC_ALGORITHM));
+            mac.update(ciphertext.duplicate());
+            byte[] computedHMAC = mac.doFinal();
+            int diff = 0;
+            for (int i = 0; i < AdvancedAES.HMAC_SIZE; i++) {
+                diff |= computedHMAC[i] ^ envelope.get();
+            }
+            if (diff != 0) {
+                throw new SecurityException("Integrity check failed: HMAC mismatch.");
+            }
+        }
+
+        Cipher cipher = AesGcmSession.cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(tagLength * 8, iv));
+        cipher.updateAAD(header);
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        try {
+            cipher.doFinal(ciphertext, out);
+        } catch (AEADBadTagException e) {
+            throw new SecurityException("Integrity check failed: tag mismatch.");
+        }
+        return out.position() - start;
+    }
+
+    // 4. Read the key ID from an envelope without consuming it
+    public static int keyId(ByteBuffer envelope) {
+        if (envelope.remaining() < HEADER_SIZE) {
+            throw new SecurityException("Integrity check failed: truncated envelope header.");
+        }
+        return envelope.getInt(envelope.position() + 4);
+    }
+
+    // 5. byte[] and Base64 conveniences
+    public static byte[] encrypt(byte[] plaintext, SecretKey key, int keyId) throws Exception {
+        byte[] envelope = new byte[sealedSize(plaintext.length)];
+        encrypt(ByteBuffer.wrap(plaintext), ByteBuffer.wrap(envelope), key, keyId);
+        return envelope;
+    }
+
+    public static byte[] encrypt(byte[] plaintext, SecretKey key, int keyId, AesGcmSession.Mode mode, byte[] aad) throws Exception {
+        byte[] envelope = new byte[sealedSize(plaintext.length, mode)];
+        encrypt(ByteBuffer.wrap(plaintext), ByteBuffer.wrap(envelope), key, keyId, mode, aad);
+        return envelope;
+    }
+
+    public static byte[] decrypt(byte[] envelope, SecretKey key) throws Exception {
+        return decrypt(envelope, key, null);
+    }
+
+    public static byte[] decrypt(byte[] envelope, SecretKey key, byte[] aad) throws Exception {
+        // Exact plaintext size from the header lengths; malformed headers are rejected by decrypt
+        int length = 0;
+        if (envelope.length >= HEADER_SIZE) {
+            int trailerSize = envelope[1] == ALG_AES_GCM_HMAC_SHA256 ? AdvancedAES.HMAC_SIZE : 0;
+            length = envelope.length - HEADER_SIZE - (envelope[2] & 0xff) - (envelope[3] & 0xff) - trailerSize;
+        }
+        byte[] plaintext = new byte[Math.max(0, length)];
+        decrypt(ByteBuffer.wrap(envelope), ByteBuffer.wrap(plaintext), key, aad);
+        return plaintext;
+    }
+
+    public static String encryptToBase64(byte[] plaintext, SecretKey key, int keyId) throws Exception {
+        return Base64.getEncoder().encodeToString(encrypt(plaintext, key, keyId));
+    }
+
+    public static byte[] decryptFromBase64(String envelope, SecretKey key) throws Exception {
+        return decrypt(Base64.getDecoder().decode(envelope), key);
+    }
+}
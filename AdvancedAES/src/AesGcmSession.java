@@ -0,0 +1,290 @@
+import javax.crypto.*;
+import javax.crypto.spec.*;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reusable AES-GCM engine bound to one key.
+//
+// Cipher, Mac and SecureRandom instances are created once per thread and reused for every call, so
+// the provider lookup and SecureRandom seeding are paid once instead of per message. A session holds
+// nothing but its key and can be shared freely across a worker pool.
+// In the default GCM_WITH_HMAC mode it produces the same IV | ciphertext | HMAC layout as AdvancedAES.encrypt;
+// GCM_ONLY drops the HMAC trailer and relies on the GCM tag alone (IV | ciphertext).
+public class AesGcmSession {
+
+    // Integrity protection applied to each message
+    public enum Mode {
+        GCM_WITH_HMAC, // GCM tag plus the IV-keyed HMAC-SHA256 trailer; wire-compatible with AdvancedAES.encrypt
+        GCM_ONLY       // GCM tag only: one pass over the data instead of two, same authentication guarantee
+    }
+
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(AdvancedAES.CIPHER_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(AdvancedAES.HMAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final SecretKey key;
+    private final Mode mode;
+    private final int trailerSize;
+
+    public AesGcmSession(SecretKey key) {
+        this(key, Mode.GCM_WITH_HMAC);
+    }
+
+    public AesGcmSession(SecretKey key, Mode mode) {
+        this.key = key;
+        this.mode = mode;
+        this.trailerSize = mode == Mode.GCM_WITH_HMAC ? AdvancedAES.HMAC_SIZE : 0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SecretKey key = AdvancedAES.deriveKeyUsingPBKDF2("superSecurePassword");
+        AesGcmSession session = new AesGcmSession(key);
+        byte[] payload = new byte[256];
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("=== Ops/sec on 256-byte messages, " + threads + " threads ===");
+        for (int round = 1; round <= 3; round++) {
+            double unpooled = opsPerSecond(threads, () -> {
+                byte[] iv = new byte[AdvancedAES.IV_SIZE];
+                new SecureRandom().nextBytes(iv);
+                Cipher cipher = Cipher.getInstance(AdvancedAES.CIPHER_ALGORITHM);
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+                byte[] ciphertext = cipher.doFinal(payload);
+                Mac mac = Mac.getInstance(AdvancedAES.HMAC_ALGORITHM);
+                mac.init(new SecretKeySpec(iv, AdvancedAES.HMAC_ALGORITHM));
+                mac.doFinal(ciphertext);
+            });
+            double pooled = opsPerSecond(threads, () -> session.encrypt(payload));
+            System.out.printf("Round %d: per-call instances %.0f ops/s | session %.0f ops/s (%.1fx)%n",
+                round, unpooled, pooled, pooled / unpooled);
+        }
+
+        // GCM tag + HMAC versus GCM tag alone on larger messages, single thread
+        AesGcmSession gcmOnly = new AesGcmSession(key, Mode.GCM_ONLY);
+        byte[] large = new byte[64 * 1024];
+        double mb = large.length / (1024.0 * 1024.0);
+        System.out.println("=== MB/s on 64 KiB messages, 1 thread ===");
+        for (int round = 1; round <= 3; round++) {
+            double withHmac = opsPerSecond(1, () -> session.encrypt(large)) * mb;
+            double tagOnly = opsPerSecond(1, () -> gcmOnly.encrypt(large)) * mb;
+            System.out.printf("Round %d: GCM+HMAC %.1f MB/s | GCM only %.1f MB/s (%.1fx)%n",
+                round, withHmac, tagOnly, tagOnly / withHmac);
+        }
+    }
+
+    // 1. Encrypt into one array laid out as IV | ciphertext+tag | HMAC (HMAC only in GCM_WITH_HMAC mode)
+    public byte[] encrypt(byte[] plaintext) throws Exception {
+        return encrypt(plaintext, null);
+    }
+
+    // aad (may be null) is authenticated by the GCM tag but neither encrypted nor stored in the output
+    public byte[] encrypt(byte[] plaintext, byte[] aad) throws Exception {
+        Cipher cipher = cipher();
+        byte[] iv = new byte[AdvancedAES.IV_SIZE];
+        random().nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+
+        // Encrypt straight into the output array, right after the IV
+        int ciphertextLength = cipher.getOutputSize(plaintext.length);
+        byte[] encryptedData = new byte[AdvancedAES.IV_SIZE + ciphertextLength + trailerSize];
+        System.arraycopy(iv, 0, encryptedData, 0, AdvancedAES.IV_SIZE);
+        cipher.doFinal(plaintext, 0, plaintext.length, encryptedData, AdvancedAES.IV_SIZE);
+
+        // Append the HMAC of the ciphertext
+        if (mode == Mode.GCM_WITH_HMAC) {
+            AdvancedAES.generateHMAC(iv, encryptedData, AdvancedAES.IV_SIZE, ciphertextLength,
+                encryptedData, AdvancedAES.IV_SIZE + ciphertextLength);
+        }
+        return encryptedData;
+    }
+
+    // 2. Verify the HMAC (if any), then decrypt and authenticate with AES-GCM
+    public byte[] decrypt(byte[] encryptedData) throws Exception {
+        return decrypt(encryptedData, null);
+    }
+
+    // aad must match the value given to encrypt, or the tag check fails
+    public byte[] decrypt(byte[] encryptedData, byte[] aad) throws Exception {
+        int ciphertextLength = encryptedData.length - AdvancedAES.IV_SIZE - trailerSize;
+        if (ciphertextLength < AdvancedAES.TAG_SIZE / 8) {
+            throw new SecurityException("Integrity check failed: message too short.");
+        }
+        GCMParameterSpec gcmSpec = new GCMParameterSpec(AdvancedAES.TAG_SIZE, encryptedData, 0, AdvancedAES.IV_SIZE);
+
+        if (mode == Mode.GCM_WITH_HMAC && !AdvancedAES.verifyHMAC(gcmSpec.getIV(), encryptedData,
+                AdvancedAES.IV_SIZE, ciphertextLength, encryptedData, AdvancedAES.IV_SIZE + ciphertextLength)) {
+            throw new SecurityException("Integrity check failed: HMAC mismatch.");
+        }
+
+        Cipher cipher = cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, gcmSpec);
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        try {
+            return cipher.doFinal(encryptedData, AdvancedAES.IV_SIZE, ciphertextLength);
+        } catch (AEADBadTagException e) {
+            throw new SecurityException("Integrity check failed: tag mismatch.");
+        }
+    }
+
+    // 3. Base64 String variants, wire-compatible with AdvancedAES.encrypt/decrypt
+    public String encrypt(String plaintext) throws Exception {
+        return Base64.getEncoder().encodeToString(encrypt(plaintext.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public String decrypt(String encryptedData) throws Exception {
+        return new String(decrypt(Base64.getDecoder().decode(encryptedData)), StandardCharsets.UTF_8);
+    }
+
+    // 4. Encrypt many records at once into a single arena, one IV | ciphertext+tag [| HMAC] record after another.
+    // Nonces for the whole batch come from one SecureRandom fill, and the per-thread Cipher and Mac are
+    // reused for every record (GCM still needs a re-init per record because every record has its own IV).
+    public AesBatch encryptBatch(List<byte[]> records) throws Exception {
+        int count = records.size();
+        int overhead = AdvancedAES.IV_SIZE + AdvancedAES.TAG_SIZE / 8 + trailerSize;
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], records.get(i).length + overhead);
+        }
+        byte[] arena = new byte[offsets[count]];
+        byte[] ivs = new byte[count * AdvancedAES.IV_SIZE];
+        random().nextBytes(ivs);
+
+        Cipher cipher = cipher();
+        Mac mac = mac();
+        for (int i = 0; i < count; i++) {
+            byte[] plaintext = records.get(i);
+            int ivOffset = offsets[i];
+            int ciphertextOffset = ivOffset + AdvancedAES.IV_SIZE;
+            int ciphertextLength = offsets[i + 1] - ciphertextOffset - trailerSize;
+            System.arraycopy(ivs, i * AdvancedAES.IV_SIZE, arena, ivOffset, AdvancedAES.IV_SIZE);
+
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                new GCMParameterSpec(AdvancedAES.TAG_SIZE, ivs, i * AdvancedAES.IV_SIZE, AdvancedAES.IV_SIZE));
+            cipher.doFinal(plaintext, 0, plaintext.length, arena, ciphertextOffset);
+
+            if (mode == Mode.GCM_ONLY) {
+                continue;
+            }
+            mac.init(new SecretKeySpec(ivs, i * AdvancedAES.IV_SIZE, AdvancedAES.IV_SIZE, AdvancedAES.HMAC_ALGORITHM));
+            mac.update(arena, ciphertextOffset, ciphertextLength);
+            mac.doFinal(arena, ciphertextOffset + ciphertextLength);
+        }
+        return new AesBatch(arena, offsets);
+    }
+
+    // 5. Verify and decrypt a batch produced by encryptBatch into one plaintext arena
+    public AesBatch decryptBatch(AesBatch encrypted) throws Exception {
+        int count = encrypted.size();
+        byte[] source = encrypted.getData();
+        int overhead = AdvancedAES.IV_SIZE + AdvancedAES.TAG_SIZE / 8 + trailerSize;
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            int plaintextLength = encrypted.length(i) - overhead;
+            if (plaintextLength < 0) {
+                throw new SecurityException("Integrity check failed: record " + i + " too short.");
+            }
+            offsets[i + 1] = offsets[i] + plaintextLength;
+        }
+        byte[] arena = new byte[offsets[count]];
+        byte[] computedHMAC = new byte[AdvancedAES.HMAC_SIZE];
+
+        Cipher cipher = cipher();
+        Mac mac = mac();
+        for (int i = 0; i < count; i++) {
+            int ivOffset = encrypted.offset(i);
+            int ciphertextOffset = ivOffset + AdvancedAES.IV_SIZE;
+            int ciphertextLength = encrypted.length(i) - AdvancedAES.IV_SIZE - trailerSize;
+
+            if (mode == Mode.GCM_WITH_HMAC) {
+                mac.init(new SecretKeySpec(source, ivOffset, AdvancedAES.IV_SIZE, AdvancedAES.HMAC_ALGORITHM));
+                mac.update(source, ciphertextOffset, ciphertextLength);
+                mac.doFinal(computedHMAC, 0);
+                int diff = 0;
+                for (int j = 0; j < AdvancedAES.HMAC_SIZE; j++) {
+                    diff |= computedHMAC[j] ^ source[ciphertextOffset + ciphertextLength + j];
+                }
+                if (diff != 0) {
+                    throw new SecurityException("Integrity check failed: HMAC mismatch in record " + i + ".");
+                }
+            }
+
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                new GCMParameterSpec(AdvancedAES.TAG_SIZE, source, ivOffset, AdvancedAES.IV_SIZE));
+            try {
+                cipher.doFinal(source, ciphertextOffset, ciphertextLength, arena, offsets[i]);
+            } catch (AEADBadTagException e) {
+                throw new SecurityException("Integrity check failed: tag mismatch in record " + i + ".");
+            }
+        }
+        return new AesBatch(arena, offsets);
+    }
+
+    public SecretKey getKey() {
+        return key;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    // 6. Per-thread instances, shared with the other AdvancedAES engines
+    static Cipher cipher() {
+        return CIPHER.get();
+    }
+
+    static Mac mac() {
+        return MAC.get();
+    }
+
+    static SecureRandom random() {
+        return RANDOM.get();
+    }
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    private static double opsPerSecond(int threads, Operation operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        LongAdder count = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        long start = System.nanoTime();
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        operation.run();
+                        count.increment();
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return count.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,146 @@
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Key-rotation aware keyring for AesEnvelope messages.
+//
+// Every envelope carries the ID of the key that sealed it, so old data stays readable after a rotation:
+// decrypt looks the key up by ID, encrypt always uses the current active key. Lookups never lock
+// (ConcurrentHashMap for the keys, a volatile reference for the active key), and a rotation only adds a
+// key and then publishes it as active, so encryptions and decryptions keep running while it happens.
+// Changes to the key set (activate, add) are serialized, so IDs are published as active in order.
+public class AesKeyring implements AutoCloseable {
+
+    // The active key and its ID, published together so encrypt never sees a mismatched pair
+    private static class ActiveKey {
+        final int id;
+        final SecretKey key;
+
+        ActiveKey(int id, SecretKey key) {
+            this.id = id;
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, SecretKey> keys = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final AesGcmSession.Mode mode;
+    private volatile ActiveKey active;
+    private volatile Exception lastRotationFailure;
+    private ScheduledExecutorService rotator;
+
+    public AesKeyring() throws Exception {
+        this(AesGcmSession.Mode.GCM_WITH_HMAC);
+    }
+
+    public AesKeyring(AesGcmSession.Mode mode) throws Exception {
+        this.mode = mode;
+        rotate();
+    }
+
+    // 1. Encrypt with the active key; the envelope header records which key was used
+    public byte[] encrypt(byte[] plaintext) throws Exception {
+        return encrypt(plaintext, null);
+    }
+
+    public byte[] encrypt(byte[] plaintext, byte[] aad) throws Exception {
+        ActiveKey current = active;
+        return AesEnvelope.encrypt(plaintext, current.key, current.id, mode, aad);
+    }
+
+    // 2. Decrypt with whichever key the envelope names, active or not
+    public byte[] decrypt(byte[] envelope) throws Exception {
+        return decrypt(envelope, null);
+    }
+
+    public byte[] decrypt(byte[] envelope, byte[] aad) throws Exception {
+        return AesEnvelope.decrypt(envelope, keyFor(envelope), aad);
+    }
+
+    // 3. Generate a new random AES key and make it the active one; returns its ID
+    public int rotate() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance(AdvancedAES.ALGORITHM);
+        generator.init(AdvancedAES.KEY_SIZE, AesGcmSession.random());
+        return activate(generator.generateKey());
+    }
+
+    // Adds an externally managed key (for example one derived with PBKDF2) and makes it active
+    public synchronized int activate(SecretKey key) {
+        int id = nextId.getAndIncrement();
+        keys.put(id, key);
+        active = new ActiveKey(id, key);
+        return id;
+    }
+
+    // Re-register a key under a known ID, e.g. when restoring a keyring; does not change the active key.
+    // An ID that already holds a different key is rejected, since data sealed under it would stop decrypting.
+    public synchronized void add(int id, SecretKey key) {
+        SecretKey existing = keys.putIfAbsent(id, key);
+        if (existing != null && !existing.equals(key)) {
+            throw new IllegalArgumentException("Key ID " + id + " is already in use by a different key");
+        }
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    // Removes a key once no data sealed with it remains; the active key cannot be retired. Synchronized with
+    // activate, so a key cannot become active between the check and the removal.
+    public synchronized boolean retire(int id) {
+        if (active.id == id) {
+            throw new IllegalStateException("Cannot retire the active key " + id);
+        }
+        return keys.remove(id) != null;
+    }
+
+    // 4. Rotate on a background daemon thread at a fixed period
+    public synchronized void startRotation(long period, TimeUnit unit) {
+        if (rotator != null) {
+            throw new IllegalStateException("Rotation already running");
+        }
+        rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aes-keyring-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rotator.scheduleAtFixedRate(() -> {
+            try {
+                rotate();
+            } catch (Exception e) {
+                // Keep the current key; the next scheduled run tries again
+                lastRotationFailure = e;
+            }
+        }, period, period, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (rotator != null) {
+            rotator.shutdownNow();
+            rotator = null;
+        }
+    }
+
+    // The most recent scheduled rotation failure, or null if none has failed
+    public Exception getLastRotationFailure() {
+        return lastRotationFailure;
+    }
+
+    public int getActiveKeyId() {
+        return active.id;
+    }
+
+    public Set<Integer> getKeyIds() {
+        return Collections.unmodifiableSet(keys.keySet());
+    }
+
+    private SecretKey keyFor(byte[] envelope) {
+        int id = AesEnvelope.keyId(ByteBuffer.wrap(envelope));
+        SecretKey key = keys.get(id);
+        if (key == null) {
+            throw new SecurityException("Unknown key ID: " + id);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,131 @@
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory cache of PBKDF2-derived keys, so repeated decrypts for the same password and salt skip the KDF.
+//
+// Entries are keyed by (password digest, salt, iterations). The password digest is salted with a random
+// per-cache pepper that never leaves the process, so the keys cannot be checked against a password guess
+// without it. A heap dump does contain the pepper, and then the digests can be brute-forced like any
+// salted hash (and the cached keys themselves are in the dump anyway).
+// The cache is bounded (least recently used entry goes first) and entries expire after a fixed TTL.
+// Cached key material is zeroed as soon as an entry is evicted, expires or the cache is cleared.
+public class DerivedKeyCache {
+
+    private static class CachedKey {
+        final byte[] keyMaterial;
+        final long expiresAt;
+
+        CachedKey(byte[] keyMaterial, long expiresAt) {
+            this.keyMaterial = keyMaterial;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final byte[] pepper = new byte[32];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final LinkedHashMap<String, CachedKey> entries;
+
+    public DerivedKeyCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("maxEntries and ttlMillis must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        AesGcmSession.random().nextBytes(pepper);
+        this.entries = new LinkedHashMap<String, CachedKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedKey> eldest) {
+                if (size() > DerivedKeyCache.this.maxEntries) {
+                    Arrays.fill(eldest.getValue().keyMaterial, (byte) 0);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // 1. Return the cached key, or run PBKDF2 once and remember the result
+    public SecretKey derive(String password, byte[] salt, int iterations) throws Exception {
+        String cacheKey = cacheKey(password, salt, iterations);
+        synchronized (this) {
+            CachedKey entry = entries.get(cacheKey);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return new SecretKeySpec(entry.keyMaterial, AdvancedAES.ALGORITHM);
+            }
+            if (entry != null) {
+                remove(cacheKey);
+            }
+        }
+        misses.incrementAndGet();
+
+        // The KDF runs outside the lock so one slow derivation does not stall other lookups
+        byte[] keyMaterial = AdvancedAES.deriveKeyMaterial(password, salt, iterations);
+        SecretKey key = new SecretKeySpec(keyMaterial, AdvancedAES.ALGORITHM);
+        synchronized (this) {
+            CachedKey previous = entries.put(cacheKey, new CachedKey(keyMaterial, System.nanoTime() + ttlNanos));
+            if (previous != null) {
+                Arrays.fill(previous.keyMaterial, (byte) 0);
+            }
+        }
+        return key;
+    }
+
+    public SecretKey derive(String password, AdvancedAES.DerivedKey derived) throws Exception {
+        return derive(password, derived.getSalt(), derived.getIterations());
+    }
+
+    // 2. Drop and zero every expired entry; lookups also expire entries lazily
+    public synchronized void evictExpired() {
+        long now = System.nanoTime();
+        Iterator<CachedKey> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CachedKey entry = iterator.next();
+            if (entry.expiresAt - now <= 0) {
+                Arrays.fill(entry.keyMaterial, (byte) 0);
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        for (CachedKey entry : entries.values()) {
+            Arrays.fill(entry.keyMaterial, (byte) 0);
+        }
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void remove(String cacheKey) {
+        CachedKey entry = entries.remove(cacheKey);
+        if (entry != null) {
+            Arrays.fill(entry.keyMaterial, (byte) 0);
+        }
+    }
+
+    private String cacheKey(String password, byte[] salt, int iterations) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(pepper);
+        byte[] passwordDigest = digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        Base64.Encoder encoder = Base64.getEncoder();
+        return encoder.encodeToString(passwordDigest) + ':' + encoder.encodeToString(salt) + ':' + iterations;
+    }
+}
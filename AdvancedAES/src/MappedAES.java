@@ -0,0 +1,182 @@
+import javax.crypto.*;
+import javax.crypto.spec.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// Bulk file encryption over memory-mapped buffers.
+//
+// Produces exactly the same segmented format as StreamingAES, but the cipher reads from and writes to
+// mapped regions of the input and output files through Cipher.doFinal(ByteBuffer, ByteBuffer), so the
+// data never passes through an intermediate byte[] on the Java heap. Files are mapped in windows of
+// WINDOW_SEGMENTS segments to stay under the 2 GB limit of a single mapping.
+//
+// Limitation: Java 8 has no supported way to unmap a MappedByteBuffer, and a mapping cannot be moved to
+// another file region, so each window stays mapped until its buffer is garbage collected. Large files
+// therefore hold many windows of address space (and dirty output pages) at once; that costs no heap, but
+// it counts toward the process's mapping limits. The throughput numbers printed by main include this.
+public class MappedAES {
+
+    static final int WINDOW_SEGMENTS = 1024; // 64 MiB of plaintext per mapping with the default segment size
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        SecretKey key = AdvancedAES.deriveKeyUsingPBKDF2("superSecurePassword");
+
+        // Build an ASCII input so the String path can encode it without loss
+        byte[] line = "The quick brown fox jumps over the lazy dog 0123456789\n".getBytes(StandardCharsets.US_ASCII);
+        Path plainFile = Files.createTempFile("mapped-aes", ".txt");
+        Path sealedFile = Files.createTempFile("mapped-aes", ".enc");
+        Path openedFile = Files.createTempFile("mapped-aes", ".out");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(plainFile))) {
+            long size = (long) megabytes * 1024 * 1024;
+            for (long written = 0; written < size; written += line.length) {
+                out.write(line, 0, (int) Math.min(line.length, size - written));
+            }
+        }
+        double mb = Files.size(plainFile) / (1024.0 * 1024.0);
+
+        try {
+            System.out.println("=== Throughput on " + megabytes + " MB ===");
+            for (int round = 1; round <= 3; round++) {
+                long start = System.nanoTime();
+                String text = new String(Files.readAllBytes(plainFile), StandardCharsets.UTF_8);
+                String encrypted = AdvancedAES.encrypt(text, key);
+                long stringNanos = System.nanoTime() - start;
+                text = null;
+                encrypted = null;
+
+                start = System.nanoTime();
+                try (InputStream in = Files.newInputStream(plainFile); OutputStream out = Files.newOutputStream(sealedFile)) {
+                    StreamingAES.encrypt(in, out, key);
+                }
+                long streamNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                encrypt(plainFile, sealedFile, key);
+                long mappedNanos = System.nanoTime() - start;
+
+                // Mapped windows from earlier rounds are only released by GC (see the class comment)
+                System.out.printf("Round %d: String %.1f MB/s | Stream %.1f MB/s | Mapped %.1f MB/s%n", round,
+                    mb / (stringNanos / 1e9), mb / (streamNanos / 1e9), mb / (mappedNanos / 1e9));
+            }
+
+            decrypt(sealedFile, openedFile, key);
+            System.out.println("Round trip intact: "
+                + Arrays.equals(Files.readAllBytes(plainFile), Files.readAllBytes(openedFile)));
+        } finally {
+            Files.deleteIfExists(plainFile);
+            Files.deleteIfExists(sealedFile);
+            Files.deleteIfExists(openedFile);
+        }
+    }
+
+    // 1. Encrypt a whole file into the segmented format using mapped input and output regions
+    public static void encrypt(Path source, Path target, SecretKey key) throws Exception {
+        encrypt(source, target, key, StreamingAES.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static void encrypt(Path source, Path target, SecretKey key, int segmentSize) throws Exception {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long plaintextLength = in.size();
+            long segments = StreamingAES.segmentCount(plaintextLength, segmentSize);
+            checkSegmentCount(segments);
+            byte[] header = StreamingAES.newHeader(segmentSize, new SecureRandom());
+            out.write(ByteBuffer.wrap(header), 0);
+
+            Cipher cipher = Cipher.getInstance(AdvancedAES.CIPHER_ALGORITHM);
+            byte[] iv = new byte[AdvancedAES.IV_SIZE];
+            long sealedSize = segmentSize + StreamingAES.TAG_BYTES;
+            int window = windowSegments(sealedSize);
+
+            for (long first = 0; first < segments; first += window) {
+                int count = (int) Math.min(window, segments - first);
+                long inPosition = first * segmentSize;
+                long inLength = Math.min((long) count * segmentSize, plaintextLength - inPosition);
+                long outPosition = StreamingAES.HEADER_SIZE + first * sealedSize;
+                long outLength = inLength + (long) count * StreamingAES.TAG_BYTES;
+
+                MappedByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, inPosition, inLength);
+                MappedByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, outPosition, outLength);
+                for (int j = 0; j < count; j++) {
+                    int index = (int) (first + j);
+                    src.limit(src.position() + Math.min(segmentSize, src.capacity() - src.position()));
+                    StreamingAES.segmentNonce(header, index, index == segments - 1, iv);
+                    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+                    cipher.updateAAD(header);
+                    cipher.doFinal(src, dst);
+                }
+            }
+        }
+    }
+
+    // 2. Decrypt a segmented file using mapped regions; on a tag mismatch the target must be discarded
+    public static void decrypt(Path source, Path target, SecretKey key) throws Exception {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] header = readHeader(in);
+            int segmentSize = StreamingAES.segmentSize(header);
+            long ciphertextLength = in.size();
+            long plaintextLength = StreamingAES.plaintextLength(ciphertextLength, segmentSize);
+            long segments = StreamingAES.segmentCount(plaintextLength, segmentSize);
+            checkSegmentCount(segments);
+
+            Cipher cipher = Cipher.getInstance(AdvancedAES.CIPHER_ALGORITHM);
+            byte[] iv = new byte[AdvancedAES.IV_SIZE];
+            long sealedSize = segmentSize + StreamingAES.TAG_BYTES;
+            int window = windowSegments(sealedSize);
+
+            for (long first = 0; first < segments; first += window) {
+                int count = (int) Math.min(window, segments - first);
+                long inPosition = StreamingAES.HEADER_SIZE + first * sealedSize;
+                long inLength = Math.min(count * sealedSize, ciphertextLength - inPosition);
+                long outPosition = first * segmentSize;
+                long outLength = inLength - (long) count * StreamingAES.TAG_BYTES;
+
+                MappedByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, inPosition, inLength);
+                MappedByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, outPosition, outLength);
+                for (int j = 0; j < count; j++) {
+                    int index = (int) (first + j);
+                    src.limit((int) Math.min(src.position() + sealedSize, src.capacity()));
+                    StreamingAES.segmentNonce(header, index, index == segments - 1, iv);
+                    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+                    cipher.updateAAD(header);
+                    try {
+                        cipher.doFinal(src, dst);
+                    } catch (AEADBadTagException e) {
+                        throw new SecurityException("Integrity check failed: tag mismatch in segment " + index + ".");
+                    }
+                }
+            }
+        }
+    }
+
+    // Segments per mapping, capped so a single window never exceeds 1 GB even with large segments
+    static int windowSegments(long sealedSize) {
+        return (int) Math.max(1, Math.min(WINDOW_SEGMENTS, (1L << 30) / sealedSize));
+    }
+
+    static byte[] readHeader(FileChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(StreamingAES.HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (in.read(header, header.position()) < 0) {
+                throw new SecurityException("Integrity check failed: truncated stream header.");
+            }
+        }
+        return header.array();
+    }
+
+    private static void checkSegmentCount(long segments) {
+        if (segments > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many segments for one stream");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import javax.crypto.*;
+import javax.crypto.spec.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Multi-core encryption of the segmented StreamingAES format.
+//
+// Segments are independent (each has its own nonce and tag), and for a file of known size every
+// segment's offset in the output is known up front. The file is split into batches of TASK_SEGMENTS
+// segments; each batch is encrypted on a worker and written at its final offset with positional
+// FileChannel I/O, so the output comes out in order without any reassembly step.
+public class ParallelAES {
+
+    static final int TASK_SEGMENTS = 16; // 1 MiB of plaintext per task with the default segment size
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        SecretKey key = AdvancedAES.deriveKeyUsingPBKDF2("superSecurePassword");
+
+        Path plainFile = Files.createTempFile("parallel-aes", ".bin");
+        Path sealedFile = Files.createTempFile("parallel-aes", ".enc");
+        Path openedFile = Files.createTempFile("parallel-aes", ".out");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(plainFile))) {
+            byte[] block = new byte[1024 * 1024];
+            Random random = new Random(42);
+            for (int i = 0; i < megabytes; i++) {
+                random.nextBytes(block);
+                out.write(block);
+            }
+        }
+
+        try {
+            int cores = Runtime.getRuntime().availableProcessors();
+            System.out.println("=== Throughput on " + megabytes + " MB ===");
+            for (int threads = 1; threads <= cores; threads = threads == cores ? cores + 1 : Math.min(threads * 2, cores)) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    encrypt(plainFile, sealedFile, key, pool); // warm-up
+                    long start = System.nanoTime();
+                    encrypt(plainFile, sealedFile, key, pool);
+                    long encryptNanos = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    decrypt(sealedFile, openedFile, key, pool);
+                    long decryptNanos = System.nanoTime() - start;
+                    System.out.printf("%2d core(s): encrypt %.1f MB/s | decrypt %.1f MB/s%n", threads,
+                        megabytes / (encryptNanos / 1e9), megabytes / (decryptNanos / 1e9));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            System.out.println("Round trip intact: "
+                + Arrays.equals(Files.readAllBytes(plainFile), Files.readAllBytes(openedFile)));
+        } finally {
+            Files.deleteIfExists(plainFile);
+            Files.deleteIfExists(sealedFile);
+            Files.deleteIfExists(openedFile);
+        }
+    }
+
+    // 1. Encrypt a file on the common ForkJoinPool, or on a caller-supplied executor
+    public static void encrypt(Path source, Path target, SecretKey key) throws Exception {
+        encrypt(source, target, key, ForkJoinPool.commonPool());
+    }
+
+    public static void encrypt(Path source, Path target, SecretKey key, ExecutorService executor) throws Exception {
+        encrypt(source, target, key, StreamingAES.DEFAULT_SEGMENT_SIZE, executor);
+    }
+
+    public static void encrypt(Path source, Path target, SecretKey key, int segmentSize, ExecutorService executor) throws Exception {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long plaintextLength = in.size();
+            long segments = StreamingAES.segmentCount(plaintextLength, segmentSize);
+            byte[] header = StreamingAES.newHeader(segmentSize, AesGcmSession.random());
+            writeFully(out, ByteBuffer.wrap(header), 0);
+
+            long sealedSize = segmentSize + StreamingAES.TAG_BYTES;
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (long first = 0; first < segments; first += TASK_SEGMENTS) {
+                long firstSegment = first;
+                int count = (int) Math.min(TASK_SEGMENTS, segments - first);
+                tasks.add(() -> {
+                    long inPosition = firstSegment * segmentSize;
+                    int inLength = (int) Math.min((long) count * segmentSize, plaintextLength - inPosition);
+                    byte[] plain = new byte[inLength];
+                    byte[] sealed = new byte[inLength + count * StreamingAES.TAG_BYTES];
+                    readFully(in, ByteBuffer.wrap(plain), inPosition);
+
+                    Cipher cipher = AesGcmSession.cipher();
+                    byte[] iv = new byte[AdvancedAES.IV_SIZE];
+                    int inOffset = 0;
+                    int outOffset = 0;
+                    for (int j = 0; j < count; j++) {
+                        long index = firstSegment + j;
+                        int chunk = Math.min(segmentSize, inLength - inOffset);
+                        StreamingAES.segmentNonce(header, (int) index, index == segments - 1, iv);
+                        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+                        cipher.updateAAD(header);
+                        outOffset += cipher.doFinal(plain, inOffset, chunk, sealed, outOffset);
+                        inOffset += chunk;
+                    }
+                    writeFully(out, ByteBuffer.wrap(sealed), StreamingAES.HEADER_SIZE + firstSegment * sealedSize);
+                    return null;
+                });
+            }
+            runAll(executor, tasks, segments);
+        }
+    }
+
+    // 2. Decrypt a segmented file in parallel; on a tag mismatch the target must be discarded
+    public static void decrypt(Path source, Path target, SecretKey key) throws Exception {
+        decrypt(source, target, key, ForkJoinPool.commonPool());
+    }
+
+    public static void decrypt(Path source, Path target, SecretKey key, ExecutorService executor) throws Exception {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] header = MappedAES.readHeader(in);
+            int segmentSize = StreamingAES.segmentSize(header);
+            long ciphertextLength = in.size();
+            long plaintextLength = StreamingAES.plaintextLength(ciphertextLength, segmentSize);
+            long segments = StreamingAES.segmentCount(plaintextLength, segmentSize);
+
+            long sealedSize = segmentSize + StreamingAES.TAG_BYTES;
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (long first = 0; first < segments; first += TASK_SEGMENTS) {
+                long firstSegment = first;
+                int count = (int) Math.min(TASK_SEGMENTS, segments - first);
+                tasks.add(() -> {
+                    long inPosition = StreamingAES.HEADER_SIZE + firstSegment * sealedSize;
+                    int inLength = (int) Math.min(count * sealedSize, ciphertextLength - inPosition);
+                    byte[] sealed = new byte[inLength];
+                    byte[] plain = new byte[inLength - count * StreamingAES.TAG_BYTES];
+                    readFully(in, ByteBuffer.wrap(sealed), inPosition);
+
+                    Cipher cipher = AesGcmSession.cipher();
+                    byte[] iv = new byte[AdvancedAES.IV_SIZE];
+                    int inOffset = 0;
+                    int outOffset = 0;
+                    for (int j = 0; j < count; j++) {
+                        long index = firstSegment + j;
+                        int chunk = (int) Math.min(sealedSize, inLength - inOffset);
+                        StreamingAES.segmentNonce(header, (int) index, index == segments - 1, iv);
+                        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+                        cipher.updateAAD(header);
+                        try {
+                            outOffset += cipher.doFinal(sealed, inOffset, chunk, plain, outOffset);
+                        } catch (AEADBadTagException e) {
+                            throw new SecurityException("Integrity check failed: tag mismatch in segment " + index + ".");
+                        }
+                        inOffset += chunk;
+                    }
+                    writeFully(out, ByteBuffer.wrap(plain), firstSegment * segmentSize);
+                    return null;
+                });
+            }
+            runAll(executor, tasks, segments);
+        }
+    }
+
+    // 3. Run every batch and surface the first failure with its original type
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks, long segments) throws Exception {
+        if (segments > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many segments for one stream");
+        }
+        List<Future<Void>> futures = executor.invokeAll(tasks);
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
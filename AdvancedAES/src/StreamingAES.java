@@ -0,0 +1,193 @@
+import javax.crypto.*;
+import javax.crypto.spec.*;
+import java.io.*;
+import java.security.SecureRandom;
+
+// Segmented AES-GCM for inputs that do not fit in memory.
+//
+// Layout of an encrypted stream:
+//   header  = version (1 byte) | segment size (4 bytes) | nonce prefix (7 bytes)
+//   segment = AES-GCM(plaintext chunk) | 16-byte tag, repeated until the input ends
+//
+// Every segment is sealed with its own nonce = nonce prefix | segment index (4 bytes) | last flag (1 byte)
+// and the header as associated data, so reordering, dropping or truncating segments fails the tag check.
+// Only two segment buffers are held at a time, whatever the size of the input.
+public class StreamingAES {
+
+    static final byte VERSION = 1;
+    static final int NONCE_PREFIX_SIZE = 7;
+    static final int HEADER_SIZE = 1 + 4 + NONCE_PREFIX_SIZE;
+    static final int TAG_BYTES = AdvancedAES.TAG_SIZE / 8;
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024; // 64 KiB of plaintext per segment
+    static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    // 1. Encrypt everything readable from in and write the segmented stream to out
+    public static void encrypt(InputStream in, OutputStream out, SecretKey key) throws Exception {
+        encrypt(in, out, key, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static void encrypt(InputStream in, OutputStream out, SecretKey key, int segmentSize) throws Exception {
+        byte[] header = newHeader(segmentSize, new SecureRandom());
+        out.write(header);
+
+        Cipher cipher = Cipher.getInstance(AdvancedAES.CIPHER_ALGORITHM);
+        byte[] current = new byte[segmentSize];
+        byte[] next = new byte[segmentSize];
+        byte[] sealed = new byte[segmentSize + TAG_BYTES];
+        byte[] iv = new byte[AdvancedAES.IV_SIZE];
+
+        // Read one segment ahead so the final segment can be flagged as last
+        int currentLength = readFully(in, current, segmentSize);
+        int index = 0;
+        while (true) {
+            int nextLength = currentLength < segmentSize ? 0 : readFully(in, next, segmentSize);
+            boolean last = nextLength == 0;
+
+            segmentNonce(header, index, last, iv);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+            cipher.updateAAD(header);
+            int sealedLength = cipher.doFinal(current, 0, currentLength, sealed, 0);
+            out.write(sealed, 0, sealedLength);
+
+            if (last) {
+                break;
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+            currentLength = nextLength;
+            index = nextIndex(index);
+        }
+        out.flush();
+    }
+
+    // 2. Decrypt a segmented stream, verifying each segment's tag before its plaintext is written
+    public static void decrypt(InputStream in, OutputStream out, SecretKey key) throws Exception {
+        byte[] header = new byte[HEADER_SIZE];
+        if (readFully(in, header, HEADER_SIZE) < HEADER_SIZE) {
+            throw new SecurityException("Integrity check failed: truncated stream header.");
+        }
+        int segmentSize = segmentSize(header);
+        int sealedSize = segmentSize + TAG_BYTES;
+
+        Cipher cipher = Cipher.getInstance(AdvancedAES.CIPHER_ALGORITHM);
+        byte[] current = new byte[sealedSize];
+        byte[] next = new byte[sealedSize];
+        byte[] plain = new byte[segmentSize];
+        byte[] iv = new byte[AdvancedAES.IV_SIZE];
+
+        int currentLength = readFully(in, current, sealedSize);
+        int index = 0;
+        while (true) {
+            if (currentLength < TAG_BYTES) {
+                throw new SecurityException("Integrity check failed: truncated segment " + index + ".");
+            }
+            int nextLength = currentLength < sealedSize ? 0 : readFully(in, next, sealedSize);
+            boolean last = nextLength == 0;
+
+            segmentNonce(header, index, last, iv);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(AdvancedAES.TAG_SIZE, iv));
+            cipher.updateAAD(header);
+            int plainLength;
+            try {
+                plainLength = cipher.doFinal(current, 0, currentLength, plain, 0);
+            } catch (AEADBadTagException e) {
+                throw new SecurityException("Integrity check failed: tag mismatch in segment " + index + ".");
+            }
+            out.write(plain, 0, plainLength);
+
+            if (last) {
+                break;
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+            currentLength = nextLength;
+            index = nextIndex(index);
+        }
+        out.flush();
+    }
+
+    // 3. Helpers shared by every implementation of the segmented format
+    static byte[] newHeader(int segmentSize, SecureRandom random) {
+        checkSegmentSize(segmentSize);
+        byte[] header = new byte[HEADER_SIZE];
+        header[0] = VERSION;
+        writeInt(header, 1, segmentSize);
+        byte[] prefix = new byte[NONCE_PREFIX_SIZE];
+        random.nextBytes(prefix);
+        System.arraycopy(prefix, 0, header, 5, NONCE_PREFIX_SIZE);
+        return header;
+    }
+
+    static int segmentSize(byte[] header) {
+        if (header[0] != VERSION) {
+            throw new SecurityException("Unsupported stream version: " + header[0]);
+        }
+        int segmentSize = readInt(header, 1);
+        checkSegmentSize(segmentSize);
+        return segmentSize;
+    }
+
+    static void segmentNonce(byte[] header, int index, boolean last, byte[] iv) {
+        System.arraycopy(header, 5, iv, 0, NONCE_PREFIX_SIZE);
+        writeInt(iv, NONCE_PREFIX_SIZE, index);
+        iv[AdvancedAES.IV_SIZE - 1] = (byte) (last ? 1 : 0);
+    }
+
+    // Number of segments needed for a plaintext; an empty input still produces one (empty) last segment
+    static long segmentCount(long plaintextLength, int segmentSize) {
+        return plaintextLength == 0 ? 1 : (plaintextLength + segmentSize - 1) / segmentSize;
+    }
+
+    static long ciphertextLength(long plaintextLength, int segmentSize) {
+        return HEADER_SIZE + plaintextLength + segmentCount(plaintextLength, segmentSize) * TAG_BYTES;
+    }
+
+    static long plaintextLength(long ciphertextLength, int segmentSize) {
+        long body = ciphertextLength - HEADER_SIZE;
+        long sealedSize = segmentSize + TAG_BYTES;
+        long segments = (body + sealedSize - 1) / sealedSize;
+        if (body < TAG_BYTES || body - (segments - 1) * sealedSize < TAG_BYTES) {
+            throw new SecurityException("Integrity check failed: truncated stream.");
+        }
+        return body - segments * TAG_BYTES;
+    }
+
+    static int nextIndex(int index) {
+        if (index == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many segments for one stream");
+        }
+        return index + 1;
+    }
+
+    static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void checkSegmentSize(int segmentSize) {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xff) << 24) | ((buffer[offset + 1] & 0xff) << 16)
+            | ((buffer[offset + 2] & 0xff) << 8) | (buffer[offset + 3] & 0xff);
+    }
+}
@@ -1,38 +1,64 @@
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.nio.charset.StandardCharsets;
 
 public class AdvancedRSA {
 
-    private static final SecureRandom random = new SecureRandom();
+    static final SecureRandom random = new SecureRandom();
+
+    // Public exponent e, typically 65537 is used
+    static final BigInteger PUBLIC_EXPONENT = BigInteger.valueOf(65537);
+
+    // Per-thread scratch state for the byte API: a padding block reused across messages and a SecureRandom
+    private static final ThreadLocal<byte[]> paddingBlock = ThreadLocal.withInitial(() -> new byte[0]);
+    static final ThreadLocal<SecureRandom> threadRandom = ThreadLocal.withInitial(SecureRandom::new);
 
     // Step 1: Generate large prime numbers and keys
     public static BigInteger[] generateKeys(int bitLength) {
-        BigInteger p = generatePrime(bitLength / 2); // Generate primes of bitLength/2
-        BigInteger q = generatePrime(bitLength / 2);
+        RsaPrivateKey key = generateKeyPair(bitLength).getPrivateKey();
 
-        // Compute n = p * q
-        BigInteger n = p.multiply(q);
+        // Return public key (e, n) and private key (d, n)
+        return new BigInteger[]{key.getPublicExponent(), key.getModulus(), key.getPrivateExponent()};
+    }
 
-        // Compute Euler's Totient function: phi(n) = (p-1) * (q-1)
-        BigInteger phiN = (p.subtract(BigInteger.ONE)).multiply(q.subtract(BigInteger.ONE));
+    // Generate a key pair whose private key keeps p, q and the CRT parameters
+    public static RsaKeyPair generateKeyPair(int bitLength) {
+        BigInteger e = PUBLIC_EXPONENT;
+        BigInteger p;
+        BigInteger q;
+        // Primes of (bitLength+1)/2 and bitLength/2 bits; e must be invertible mod (p-1)(q-1)
+        do {
+            p = generatePrime((bitLength + 1) / 2);
+        } while (!isUsablePrime(p, e));
+        do {
+            q = generatePrime(bitLength / 2);
+        } while (q.equals(p) || !isUsablePrime(q, e));
 
-        // Choose e (public exponent), typically 65537 is used
-        BigInteger e = BigInteger.valueOf(65537);
+        RsaPrivateKey privateKey = RsaPrivateKey.fromPrimes(p, q, e);
+        return new RsaKeyPair(privateKey.toPublicKey(), privateKey);
+    }
 
-        // Compute d (private exponent), which is the modular inverse of e mod phiN
-        BigInteger d = e.modInverse(phiN);
+    // Generate a key pair in the background, searching for p and q in parallel (see ParallelRsaKeyGenerator)
+    public static CompletableFuture<RsaKeyPair> generateKeyPairAsync(int bitLength) {
+        return new ParallelRsaKeyGenerator().generateAsync(bitLength);
+    }
 
-        // Return public key (e, n) and private key (d, n)
-        return new BigInteger[]{e, n, d};
+    static boolean isUsablePrime(BigInteger prime, BigInteger e) {
+        return prime.subtract(BigInteger.ONE).gcd(e).equals(BigInteger.ONE);
     }
 
     // Step 2: Generate a large prime number (ensures cryptographic security)
-    private static BigInteger generatePrime(int bitLength) {
+    static BigInteger generatePrime(int bitLength) {
         BigInteger prime;
         do {
-            prime = new BigInteger(bitLength, random).nextProbablePrime();
-        } while (prime.bitLength() < bitLength); // Ensure it is of the correct bit length
+            // Top two bits set, so a product of two such primes has exactly the sum of their lengths
+            BigInteger start = new BigInteger(bitLength, random).setBit(bitLength - 1).setBit(bitLength - 2);
+            prime = start.nextProbablePrime();
+        } while (prime.bitLength() != bitLength); // Ensure it did not run past the top of the range
         return prime;
     }
 
@@ -52,52 +78,210 @@ public class AdvancedRSA {
         BigInteger decryptedMessage = ciphertext.modPow(d, n);
 
         // Remove PKCS#1 v1.5 padding
-        byte[] paddedMessageBytes = decryptedMessage.toByteArray();
-        byte[] originalMessageBytes = pkcs1UnPadding(paddedMessageBytes);
+        byte[] originalMessageBytes = pkcs1UnPadding(decryptedMessage, n.bitLength() / 8);
 
         return new BigInteger(1, originalMessageBytes);
     }
 
-    // Step 5: Apply PKCS#1 v1.5 Padding
-    private static byte[] pkcs1Padding(byte[] messageBytes, int keyLength) {
-        int messageLength = messageBytes.length;
+    // Key-object variants of steps 3 and 4
+    public static BigInteger encrypt(BigInteger message, RsaPublicKey key) {
+        return encrypt(message, key.getExponent(), key.getModulus());
+    }
 
-        // Ensure the message fits in the key length
-        if (messageLength + 11 > keyLength) {
-            throw new IllegalArgumentException("Message too long to encrypt");
+    // Decrypt with the Chinese Remainder Theorem: two half-size exponentiations instead of modPow(d, n)
+    public static BigInteger decrypt(BigInteger ciphertext, RsaPrivateKey key) {
+        BigInteger decryptedMessage = privateOperation(ciphertext, key);
+
+        // Remove PKCS#1 v1.5 padding
+        byte[] originalMessageBytes = pkcs1UnPadding(decryptedMessage, key.getModulus().bitLength() / 8);
+        return new BigInteger(1, originalMessageBytes);
+    }
+
+    // Computes c^d mod n as m2 + q * (qInv * (m1 - m2) mod p), with m1 = c^dP mod p and m2 = c^dQ mod q
+    static BigInteger privateOperation(BigInteger c, RsaPrivateKey key) {
+        BigInteger p = key.getPrimeP();
+        BigInteger q = key.getPrimeQ();
+        BigInteger m1 = c.mod(p).modPow(key.getPrimeExponentP(), p);
+        BigInteger m2 = c.mod(q).modPow(key.getPrimeExponentQ(), q);
+        BigInteger h = key.getCrtCoefficient().multiply(m1.subtract(m2)).mod(p);
+        return m2.add(h.multiply(q));
+    }
+
+    // Byte-oriented encryption: pads the exact bytes given and returns exactly modulus-length bytes,
+    // so leading zero bytes survive the round trip (unlike the BigInteger variant)
+    public static byte[] encrypt(byte[] message, RsaPublicKey key) {
+        return encrypt(message, key, RsaPadding.PKCS1_V1_5);
+    }
+
+    public static byte[] encrypt(byte[] message, RsaPublicKey key, RsaPadding padding) {
+        byte[] ciphertext = new byte[key.getModulusBytes()];
+        encrypt(message, 0, message.length, key, padding, ciphertext, 0);
+        return ciphertext;
+    }
+
+    // Encrypts message[offset, offset + length) into out at outOffset; returns the ciphertext length.
+    // The message is padded in a per-thread block, so the only allocations left are inside BigInteger.
+    public static int encrypt(byte[] message, int offset, int length, RsaPublicKey key, RsaPadding padding,
+                              byte[] out, int outOffset) {
+        int keyLength = key.getModulusBytes();
+        if (out.length - outOffset < keyLength) {
+            throw new IllegalArgumentException("Output buffer too small");
         }
+        byte[] block = block(keyLength);
+        padding.pad(message, offset, length, block, threadRandom.get());
+        BigInteger ciphertext = new BigInteger(1, block).modPow(key.getExponent(), key.getModulus());
+        writeFixedLength(ciphertext, out, outOffset, keyLength);
+        return keyLength;
+    }
 
-        byte[] paddedMessage = new byte[keyLength];
-        paddedMessage[0] = 0x00;
-        paddedMessage[1] = 0x02; // Start with 0x02 byte for padding
+    public static byte[] decrypt(byte[] ciphertext, RsaPrivateKey key) {
+        return decrypt(ciphertext, key, RsaPadding.PKCS1_V1_5);
+    }
 
-        // Fill padding with random bytes
-        byte[] padding = new byte[keyLength - 3 - messageLength];
-        random.nextBytes(padding);
-        System.arraycopy(padding, 0, paddedMessage, 2, padding.length);
+    public static byte[] decrypt(byte[] ciphertext, RsaPrivateKey key, RsaPadding padding) {
+        if (ciphertext.length != key.getModulusBytes()) {
+            throw new IllegalArgumentException("Ciphertext does not match the key length");
+        }
+        byte[] block = block(ciphertext.length);
+        int start = decryptToBlock(ciphertext, 0, key, padding, block);
+        return Arrays.copyOfRange(block, start, block.length);
+    }
 
-        // Add the message with separator (0x00)
-        paddedMessage[keyLength - messageLength - 1] = 0x00;
-        System.arraycopy(messageBytes, 0, paddedMessage, keyLength - messageLength, messageLength);
+    // Decrypts the modulus-length ciphertext at offset into out at outOffset; returns the message length
+    public static int decrypt(byte[] ciphertext, int offset, RsaPrivateKey key, RsaPadding padding,
+                              byte[] out, int outOffset) {
+        int keyLength = key.getModulusBytes();
+        if (ciphertext.length - offset < keyLength) {
+            throw new IllegalArgumentException("Ciphertext does not match the key length");
+        }
+        byte[] block = block(keyLength);
+        int start = decryptToBlock(ciphertext, offset, key, padding, block);
+        int length = keyLength - start;
+        if (out.length - outOffset < length) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+        System.arraycopy(block, start, out, outOffset, length);
+        return length;
+    }
 
-        return paddedMessage;
+    // Runs the CRT private operation into block and unpads it there; returns where the message starts
+    private static int decryptToBlock(byte[] ciphertext, int offset, RsaPrivateKey key, RsaPadding padding,
+                                      byte[] block) {
+        System.arraycopy(ciphertext, offset, block, 0, block.length);
+        BigInteger c = new BigInteger(1, block);
+        if (c.compareTo(key.getModulus()) >= 0) {
+            throw new IllegalArgumentException("Ciphertext does not match the key length");
+        }
+        writeFixedLength(privateOperation(c, key), block, 0, block.length);
+        return padding.unpad(block);
     }
 
-    // Step 6: Remove PKCS#1 v1.5 Padding
-    private static byte[] pkcs1UnPadding(byte[] paddedMessage) {
-        int i = 0;
+    // Sign the SHA-256 digest of message with the CRT private key (PKCS#1 v1.5 unless a scheme is given)
+    public static byte[] sign(byte[] message, RsaPrivateKey key) {
+        return sign(message, key, RsaSignatureScheme.PKCS1_V1_5);
+    }
 
-        // Skip the leading 0x00 and 0x02 bytes
-        while (paddedMessage[i] != 0x00) {
-            i++;
+    public static byte[] sign(byte[] message, RsaPrivateKey key, RsaSignatureScheme scheme) {
+        int keyLength = key.getModulusBytes();
+        BigInteger n = key.getModulus();
+        byte[] block = block(keyLength);
+        scheme.encode(RsaSignatureScheme.digest(message), block, n.bitLength(), threadRandom.get());
+        BigInteger m = new BigInteger(1, block);
+        BigInteger signature = privateOperation(m, key);
+
+        // A fault in one CRT half would leak a factor of n through the signature; the public check is cheap
+        if (!signature.modPow(key.getPublicExponent(), n).equals(m)) {
+            throw new SecurityException("Signature self-check failed");
         }
-        i++; // Skip the 0x00 byte
+        return toFixedLength(signature, keyLength);
+    }
 
-        // The remaining bytes are the actual message
-        byte[] message = new byte[paddedMessage.length - i];
-        System.arraycopy(paddedMessage, i, message, 0, message.length);
+    // One-off verification; services that verify repeatedly should keep an RsaVerifier per key
+    public static boolean verify(byte[] message, byte[] signature, RsaPublicKey key) {
+        return new RsaVerifier(key).verify(message, signature);
+    }
+
+    public static boolean verify(byte[] message, byte[] signature, RsaPublicKey key, RsaSignatureScheme scheme) {
+        return new RsaVerifier(key, scheme).verify(message, signature);
+    }
+
+    // Encrypt many messages under one public key, spread across cores.
+    // The modulus length is computed once for the whole batch, and each worker thread pads into one reused
+    // block with its own SecureRandom instead of allocating padding and output arrays per message.
+    // modPow itself already runs in Montgomery form inside BigInteger.
+    public static List<byte[]> encryptBatch(List<byte[]> messages, RsaPublicKey key) {
+        return encryptBatch(messages, key, RsaPadding.PKCS1_V1_5);
+    }
+
+    public static List<byte[]> encryptBatch(List<byte[]> messages, RsaPublicKey key, RsaPadding padding) {
+        int keyLength = key.getModulusBytes();
+        BigInteger e = key.getExponent();
+        BigInteger n = key.getModulus();
+        for (byte[] message : messages) {
+            if (message.length > padding.maxMessageLength(keyLength)) {
+                throw new IllegalArgumentException("Message too long to encrypt");
+            }
+        }
+
+        byte[][] ciphertexts = new byte[messages.size()][];
+        Arrays.parallelSetAll(ciphertexts, i -> {
+            byte[] block = block(keyLength);
+            byte[] message = messages.get(i);
+            padding.pad(message, 0, message.length, block, threadRandom.get());
+            return toFixedLength(new BigInteger(1, block).modPow(e, n), keyLength);
+        });
+        return Arrays.asList(ciphertexts);
+    }
+
+    // This thread's padding block, resized when the key length changes
+    static byte[] block(int keyLength) {
+        byte[] block = paddingBlock.get();
+        if (block.length != keyLength) {
+            block = new byte[keyLength];
+            paddingBlock.set(block);
+        }
+        return block;
+    }
+
+    // Big-endian encoding of value in exactly length bytes
+    static byte[] toFixedLength(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == length) {
+            return bytes;
+        }
+        byte[] fixed = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, fixed, length - copy, copy);
+        return fixed;
+    }
 
-        return message;
+    // Same, written into out at offset
+    static void writeFixedLength(BigInteger value, byte[] out, int offset, int length) {
+        byte[] bytes = value.toByteArray();
+        int copy = Math.min(bytes.length, length);
+        Arrays.fill(out, offset, offset + length - copy, (byte) 0);
+        System.arraycopy(bytes, bytes.length - copy, out, offset + length - copy, copy);
+    }
+
+    // Step 5: Apply PKCS#1 v1.5 Padding
+    private static byte[] pkcs1Padding(byte[] messageBytes, int keyLength) {
+        // Padding is written straight into the output block (see RsaPadding for the layout)
+        byte[] paddedMessage = new byte[keyLength];
+        RsaPadding.PKCS1_V1_5.pad(messageBytes, 0, messageBytes.length, paddedMessage, random);
+        return paddedMessage;
+    }
+
+    // Step 6: Remove PKCS#1 v1.5 Padding
+    private static byte[] pkcs1UnPadding(BigInteger paddedMessage, int keyLength) {
+        // Back to the block pkcs1Padding built (toByteArray drops its leading zero), then the same
+        // constant-time check RsaBlindedEngine uses; malformed padding is rejected instead of scanned.
+        // The exponentiation before it is still unblinded: use RsaBlindedEngine for untrusted ciphertexts.
+        byte[] paddedMessageBytes = new byte[keyLength];
+        writeFixedLength(paddedMessage, paddedMessageBytes, 0, keyLength);
+        int start = RsaPadding.PKCS1_V1_5.unpadConstantTime(paddedMessageBytes);
+
+        // The remaining bytes are the actual message
+        return Arrays.copyOfRange(paddedMessageBytes, start, keyLength);
     }
 
     // Step 7: Example usage
@@ -127,5 +311,41 @@ public class AdvancedRSA {
         BigInteger decryptedMessage = decrypt(encryptedMessage, d, n);
         String decryptedString = new String(decryptedMessage.toByteArray(), StandardCharsets.UTF_8);
         System.out.println("Decrypted message: " + decryptedString);
+
+        // Decrypt again with a CRT private key
+        RsaKeyPair keyPair = generateKeyPair(bitLength);
+        BigInteger crtDecrypted = decrypt(encrypt(m, keyPair.getPublicKey()), keyPair.getPrivateKey());
+        System.out.println("CRT decrypted message: " + new String(crtDecrypted.toByteArray(), StandardCharsets.UTF_8));
+
+        // Batch encryption vs. one call per message
+        byte[] token = message.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> tokens = Collections.nCopies(1000, token);
+        RsaPublicKey publicKey = keyPair.getPublicKey();
+        encryptBatch(tokens, publicKey); // warm-up
+        long start = System.nanoTime();
+        for (byte[] t : tokens) {
+            encrypt(t, publicKey);
+        }
+        double singleOps = tokens.size() / ((System.nanoTime() - start) / 1e9);
+        start = System.nanoTime();
+        encryptBatch(tokens, publicKey);
+        double batchOps = tokens.size() / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("Encrypt ops/sec: single-call %.0f, batch %.0f%n", singleOps, batchOps);
+
+        // Sign once, verify many times with a cached verifier
+        byte[] signature = sign(token, keyPair.getPrivateKey(), RsaSignatureScheme.PSS);
+        RsaVerifier verifier = new RsaVerifier(publicKey, RsaSignatureScheme.PSS);
+        System.out.println("PSS signature valid: " + verifier.verify(token, signature));
+        start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            sign(token, keyPair.getPrivateKey(), RsaSignatureScheme.PSS);
+        }
+        double signOps = 100 / ((System.nanoTime() - start) / 1e9);
+        start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            verifier.verify(token, signature);
+        }
+        double verifyOps = 1000 / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("Sign ops/sec: %.0f, verify ops/sec: %.0f%n", signOps, verifyOps);
     }
 }
@@ -0,0 +1,214 @@
+import javax.crypto.*;
+import javax.crypto.spec.*;
+import java.io.*;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// Hybrid RSA + AES-GCM encryption for payloads of any size.
+//
+// A fresh 256-bit AES session key is generated per message and wrapped once with RSA-OAEP;
+// the body is then encrypted with AES-GCM in fixed-size segments, so the RSA cost is paid once per
+// message instead of once per key-sized block, and memory stays at two segment buffers.
+//
+// Layout:
+//   header  = version (1) | segment size (4) | wrapped key length (2) | RSA-wrapped session key
+//   segment = AES-GCM(plaintext chunk) | 16-byte tag, repeated until the input ends
+//
+// Segment nonces are the segment index (4 bytes) followed by a last-segment flag (1 byte), left-padded
+// with zeros to 12 bytes; this is safe because the session key is never reused. The header is bound to
+// every segment as associated data, so reordering, truncation or header tampering fails the tag check.
+//
+// A session key that cannot be unwrapped is not reported as such: decryption carries on with a random
+// key (implicit rejection), so a bad wrapped key and a bad segment both end in the same segment 0 tag
+// mismatch and the error gives no padding oracle. Version 1 messages (PKCS#1 v1.5 wrapping) are rejected.
+public class HybridRSA {
+
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final byte VERSION = 2;
+    private static final int SESSION_KEY_SIZE = 32; // AES-256
+    private static final int IV_SIZE = 12;
+    private static final int TAG_BITS = 128;
+    private static final int TAG_BYTES = TAG_BITS / 8;
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        RsaKeyPair keyPair = AdvancedRSA.generateKeyPair(2048);
+        byte[] payload = new byte[8 * 1024 * 1024];
+        new SecureRandom().nextBytes(payload);
+
+        long start = System.nanoTime();
+        byte[] sealed = encrypt(payload, keyPair.getPublicKey());
+        long encryptNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        byte[] opened = decrypt(sealed, keyPair.getPrivateKey());
+        long decryptNanos = System.nanoTime() - start;
+
+        System.out.printf("8 MB hybrid encrypt: %d ms, decrypt: %d ms, overhead: %d bytes, intact: %b%n",
+            encryptNanos / 1_000_000, decryptNanos / 1_000_000, sealed.length - payload.length,
+            Arrays.equals(payload, opened));
+    }
+
+    // 1. byte[] conveniences
+    public static byte[] encrypt(byte[] plaintext, RsaPublicKey key) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(plaintext.length + 1024);
+        encrypt(new ByteArrayInputStream(plaintext), out, key);
+        return out.toByteArray();
+    }
+
+    public static byte[] decrypt(byte[] message, RsaPrivateKey key) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(message.length);
+        decrypt(new ByteArrayInputStream(message), out, key);
+        return out.toByteArray();
+    }
+
+    // 2. Stream encryption: wrap a fresh session key with RSA, then seal the body segment by segment
+    public static void encrypt(InputStream in, OutputStream out, RsaPublicKey key) throws Exception {
+        byte[] sessionKey = new byte[SESSION_KEY_SIZE];
+        new SecureRandom().nextBytes(sessionKey);
+        byte[] wrappedKey = AdvancedRSA.encrypt(sessionKey, key, RsaPadding.OAEP);
+        SecretKey aesKey = new SecretKeySpec(sessionKey, "AES");
+        Arrays.fill(sessionKey, (byte) 0);
+
+        byte[] header = new byte[1 + 4 + 2 + wrappedKey.length];
+        header[0] = VERSION;
+        writeInt(header, 1, SEGMENT_SIZE);
+        header[5] = (byte) (wrappedKey.length >>> 8);
+        header[6] = (byte) wrappedKey.length;
+        System.arraycopy(wrappedKey, 0, header, 7, wrappedKey.length);
+        out.write(header);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        byte[] current = new byte[SEGMENT_SIZE];
+        byte[] next = new byte[SEGMENT_SIZE];
+        byte[] sealed = new byte[SEGMENT_SIZE + TAG_BYTES];
+        byte[] iv = new byte[IV_SIZE];
+
+        // Read one segment ahead so the final segment can be flagged as last
+        int currentLength = readFully(in, current, SEGMENT_SIZE);
+        int index = 0;
+        while (true) {
+            int nextLength = currentLength < SEGMENT_SIZE ? 0 : readFully(in, next, SEGMENT_SIZE);
+            boolean last = nextLength == 0;
+
+            segmentNonce(index, last, iv);
+            cipher.init(Cipher.ENCRYPT_MODE, aesKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(header);
+            out.write(sealed, 0, cipher.doFinal(current, 0, currentLength, sealed, 0));
+
+            if (last) {
+                break;
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+            currentLength = nextLength;
+            index++;
+        }
+        out.flush();
+    }
+
+    // 3. Stream decryption: unwrap the session key once, then verify and decrypt each segment
+    public static void decrypt(InputStream in, OutputStream out, RsaPrivateKey key) throws Exception {
+        byte[] prefix = new byte[7];
+        if (readFully(in, prefix, prefix.length) < prefix.length || prefix[0] != VERSION) {
+            throw new SecurityException("Integrity check failed: invalid hybrid header.");
+        }
+        int segmentSize = readInt(prefix, 1);
+        int wrappedLength = ((prefix[5] & 0xff) << 8) | (prefix[6] & 0xff);
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE || wrappedLength != key.getModulusBytes()) {
+            throw new SecurityException("Integrity check failed: invalid hybrid header.");
+        }
+        byte[] header = Arrays.copyOf(prefix, prefix.length + wrappedLength);
+        if (readFully(in, header, prefix.length, wrappedLength) < wrappedLength) {
+            throw new SecurityException("Integrity check failed: truncated hybrid header.");
+        }
+
+        // Implicit rejection: any unwrap failure continues with a random key and fails at segment 0. The
+        // unwrap is blinded and unpads in constant time, so its timing does not reveal why it failed either.
+        byte[] sessionKey = new byte[SESSION_KEY_SIZE];
+        new SecureRandom().nextBytes(sessionKey);
+        try {
+            byte[] unwrapped = new RsaBlindedEngine(key).decrypt(
+                Arrays.copyOfRange(header, prefix.length, header.length), RsaPadding.OAEP);
+            if (unwrapped.length == SESSION_KEY_SIZE) {
+                System.arraycopy(unwrapped, 0, sessionKey, 0, SESSION_KEY_SIZE);
+            }
+            Arrays.fill(unwrapped, (byte) 0);
+        } catch (RuntimeException e) {
+            // Keep the random key
+        }
+        SecretKey aesKey = new SecretKeySpec(sessionKey, "AES");
+        Arrays.fill(sessionKey, (byte) 0);
+
+        int sealedSize = segmentSize + TAG_BYTES;
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        byte[] current = new byte[sealedSize];
+        byte[] next = new byte[sealedSize];
+        byte[] plain = new byte[segmentSize];
+        byte[] iv = new byte[IV_SIZE];
+
+        int currentLength = readFully(in, current, sealedSize);
+        int index = 0;
+        while (true) {
+            if (currentLength < TAG_BYTES) {
+                throw new SecurityException("Integrity check failed: truncated segment " + index + ".");
+            }
+            int nextLength = currentLength < sealedSize ? 0 : readFully(in, next, sealedSize);
+            boolean last = nextLength == 0;
+
+            segmentNonce(index, last, iv);
+            cipher.init(Cipher.DECRYPT_MODE, aesKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(header);
+            try {
+                out.write(plain, 0, cipher.doFinal(current, 0, currentLength, plain, 0));
+            } catch (AEADBadTagException e) {
+                throw new SecurityException("Integrity check failed: tag mismatch in segment " + index + ".");
+            }
+
+            if (last) {
+                break;
+            }
+            byte[] swap = current;
+            current = next;
+            next = swap;
+            currentLength = nextLength;
+            index++;
+        }
+        out.flush();
+    }
+
+    // 4. Helpers
+    private static void segmentNonce(int index, boolean last, byte[] iv) {
+        writeInt(iv, IV_SIZE - 5, index);
+        iv[IV_SIZE - 1] = (byte) (last ? 1 : 0);
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        return readFully(in, buffer, 0, length);
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xff) << 24) | ((buffer[offset + 1] & 0xff) << 16)
+            | ((buffer[offset + 2] & 0xff) << 8) | (buffer[offset + 3] & 0xff);
+    }
+}
@@ -0,0 +1,144 @@
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.*;
+
+// Generates RSA key pairs by searching for p and q at the same time on several cores.
+//
+// For each prime, several searchers race from independent random starting points; the first one to find
+// a usable prime completes the search and the others notice on their next candidate and stop. p and q are
+// searched concurrently and combined into an RsaKeyPair, returned as a CompletableFuture so callers can
+// pre-generate keys without blocking. Cancelling the returned future also stops the searchers.
+public class ParallelRsaKeyGenerator {
+
+    // Smallest modulus accepted, as for java.security's RSA KeyPairGenerator
+    static final int MIN_BIT_LENGTH = 512;
+
+    // Candidates tried from one random start before picking a new one
+    private static final int CANDIDATES_PER_START = 4096;
+
+    // Small odd primes used to discard most candidates before the (expensive) probabilistic test
+    private static final int[] SMALL_PRIMES = {3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47};
+    private static final BigInteger SMALL_PRIMES_PRODUCT;
+
+    static {
+        BigInteger product = BigInteger.ONE;
+        for (int prime : SMALL_PRIMES) {
+            product = product.multiply(BigInteger.valueOf(prime));
+        }
+        SMALL_PRIMES_PRODUCT = product;
+    }
+
+    private static final int PRIME_CERTAINTY = 100; // same certainty as BigInteger.nextProbablePrime
+
+    private final Executor executor;
+    private final int searchersPerPrime;
+
+    public ParallelRsaKeyGenerator() {
+        this(ForkJoinPool.commonPool(), Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public ParallelRsaKeyGenerator(Executor executor, int searchersPerPrime) {
+        if (searchersPerPrime <= 0) {
+            throw new IllegalArgumentException("searchersPerPrime must be positive");
+        }
+        this.executor = executor;
+        this.searchersPerPrime = searchersPerPrime;
+    }
+
+    // 1. Start generating a key pair of the given modulus size
+    public CompletableFuture<RsaKeyPair> generateAsync(int bitLength) {
+        if (bitLength < MIN_BIT_LENGTH) {
+            throw new IllegalArgumentException("bitLength must be at least " + MIN_BIT_LENGTH);
+        }
+        CompletableFuture<RsaKeyPair> result = new CompletableFuture<>();
+        attempt(bitLength, result);
+        return result;
+    }
+
+    // One search for p and q; retries feed the same result future, so cancelling it stops every attempt
+    private void attempt(int bitLength, CompletableFuture<RsaKeyPair> result) {
+        BigInteger e = AdvancedRSA.PUBLIC_EXPONENT;
+        // p takes the extra bit of an odd size, so the two lengths add up to exactly bitLength
+        CompletableFuture<BigInteger> p = findPrime((bitLength + 1) / 2, e);
+        CompletableFuture<BigInteger> q = findPrime(bitLength / 2, e);
+
+        // Stop the searchers if the caller gives up on the key, or one of the searches fails
+        result.whenComplete((pair, failure) -> {
+            p.cancel(false);
+            q.cancel(false);
+        });
+
+        p.thenCombine(q, (primeP, primeQ) -> {
+            if (primeP.equals(primeQ)) {
+                return null; // practically impossible, but p == q would give a broken key
+            }
+            RsaPrivateKey privateKey = RsaPrivateKey.fromPrimes(primeP, primeQ, e);
+            return new RsaKeyPair(privateKey.toPublicKey(), privateKey);
+        }).whenComplete((pair, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+            } else if (pair != null) {
+                result.complete(pair);
+            } else if (!result.isDone()) {
+                attempt(bitLength, result);
+            }
+        });
+    }
+
+    // Blocking convenience wrapper
+    public RsaKeyPair generate(int bitLength) {
+        return generateAsync(bitLength).join();
+    }
+
+    // 2. Race several searchers for one prime; the first result wins
+    CompletableFuture<BigInteger> findPrime(int bitLength, BigInteger e) {
+        CompletableFuture<BigInteger> result = new CompletableFuture<>();
+        for (int i = 0; i < searchersPerPrime; i++) {
+            executor.execute(() -> {
+                try {
+                    BigInteger prime = search(bitLength, e, result);
+                    if (prime != null) {
+                        result.complete(prime);
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        }
+        return result;
+    }
+
+    // 3. Incremental search from random odd starting points; returns null once the race is decided
+    private static BigInteger search(int bitLength, BigInteger e, CompletableFuture<BigInteger> race) {
+        SecureRandom random = new SecureRandom();
+        BigInteger two = BigInteger.valueOf(2);
+        while (!race.isDone()) {
+            // Top two bits set so that p * q has the full modulus length; low bit set so it is odd
+            BigInteger candidate = new BigInteger(bitLength, random)
+                .setBit(bitLength - 1).setBit(bitLength - 2).setBit(0);
+            long residue = candidate.mod(SMALL_PRIMES_PRODUCT).longValue();
+
+            for (int step = 0; step < CANDIDATES_PER_START && !race.isDone(); step++) {
+                if (candidate.bitLength() > bitLength) {
+                    break; // ran past the top of the range; pick a new start
+                }
+                if (passesSmallPrimes(residue + 2L * step)
+                        && candidate.isProbablePrime(PRIME_CERTAINTY)
+                        && AdvancedRSA.isUsablePrime(candidate, e)) {
+                    return candidate;
+                }
+                candidate = candidate.add(two);
+            }
+        }
+        return null;
+    }
+
+    private static boolean passesSmallPrimes(long residue) {
+        for (int prime : SMALL_PRIMES) {
+            if (residue % prime == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
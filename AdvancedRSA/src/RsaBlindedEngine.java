@@ -0,0 +1,129 @@
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// Hardened private-key operations for one RSA key: base blinding plus constant-time unpadding.
+//
+// BigInteger.modPow is not constant time, so running it directly on attacker-chosen ciphertext lets
+// timing depend on that input. With blinding the exponentiation runs on c * r^e mod n for a secret
+// random r and the result is multiplied by r^-1 afterwards, so the operand is unrelated to the
+// ciphertext. Fresh (r^e, r^-1) pairs need a modPow and a modInverse, so the pair is cached and
+// squared after every use ((r^2)^e = (r^e)^2), which costs two modular squarings per call; a new r is
+// drawn every REFRESH_INTERVAL uses, as OpenSSL does. Unpadding uses RsaPadding.unpadConstantTime.
+//
+// The engine is thread-safe. Use it instead of AdvancedRSA.decrypt / sign where ciphertexts come from
+// untrusted parties; see CryptoBenchmarks (rsa.*Blinded) for the overhead against the plain path.
+public class RsaBlindedEngine {
+
+    static final int REFRESH_INTERVAL = 32;
+
+    private final RsaPrivateKey key;
+    private final BigInteger n;
+    private final BigInteger e;
+    private final int keyLength;
+    private final SecureRandom random = new SecureRandom();
+
+    // Guarded by this
+    private BigInteger blindingFactor;   // r^e mod n
+    private BigInteger unblindingFactor; // r^-1 mod n
+    private int uses;
+
+    public RsaBlindedEngine(RsaPrivateKey key) {
+        this.key = key;
+        this.n = key.getModulus();
+        this.e = key.getPublicExponent();
+        this.keyLength = key.getModulusBytes();
+        refresh();
+    }
+
+    public static void main(String[] args) {
+        RsaKeyPair keyPair = AdvancedRSA.generateKeyPair(2048);
+        RsaBlindedEngine engine = new RsaBlindedEngine(keyPair.getPrivateKey());
+        byte[] message = "Hello blinded RSA".getBytes(StandardCharsets.UTF_8);
+        byte[] ciphertext = AdvancedRSA.encrypt(message, keyPair.getPublicKey());
+        System.out.println("Round trip intact: " + Arrays.equals(message, engine.decrypt(ciphertext)));
+
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 500; i++) {
+                AdvancedRSA.decrypt(ciphertext, keyPair.getPrivateKey());
+            }
+            long plainNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 500; i++) {
+                engine.decrypt(ciphertext);
+            }
+            long blindedNanos = System.nanoTime() - start;
+            System.out.printf("Round %d: plain %.0f ops/s, blinded %.0f ops/s, overhead %+.1f%%%n", round,
+                500 / (plainNanos / 1e9), 500 / (blindedNanos / 1e9), (blindedNanos - plainNanos) * 100.0 / plainNanos);
+        }
+    }
+
+    // 1. Decryption: blinded CRT operation, then constant-time unpadding
+    public byte[] decrypt(byte[] ciphertext) {
+        return decrypt(ciphertext, RsaPadding.PKCS1_V1_5);
+    }
+
+    public byte[] decrypt(byte[] ciphertext, RsaPadding padding) {
+        if (ciphertext.length != keyLength) {
+            throw new IllegalArgumentException("Ciphertext does not match the key length");
+        }
+        BigInteger c = new BigInteger(1, ciphertext);
+        if (c.compareTo(n) >= 0) {
+            throw new IllegalArgumentException("Ciphertext does not match the key length");
+        }
+        byte[] block = AdvancedRSA.block(keyLength);
+        AdvancedRSA.writeFixedLength(privateOperation(c), block, 0, keyLength);
+        int start = padding.unpadConstantTime(block);
+        return Arrays.copyOfRange(block, start, block.length);
+    }
+
+    // 2. Signing with the same blinded operation; verify with RsaVerifier as usual
+    public byte[] sign(byte[] message) {
+        return sign(message, RsaSignatureScheme.PKCS1_V1_5);
+    }
+
+    public byte[] sign(byte[] message, RsaSignatureScheme scheme) {
+        byte[] block = AdvancedRSA.block(keyLength);
+        scheme.encode(RsaSignatureScheme.digest(message), block, n.bitLength(), AdvancedRSA.threadRandom.get());
+        BigInteger m = new BigInteger(1, block);
+        BigInteger signature = privateOperation(m);
+        if (!signature.modPow(e, n).equals(m)) {
+            throw new SecurityException("Signature self-check failed");
+        }
+        return AdvancedRSA.toFixedLength(signature, keyLength);
+    }
+
+    // 3. c^d mod n computed as ((c * r^e)^d mod n) * r^-1 mod n
+    BigInteger privateOperation(BigInteger c) {
+        BigInteger blind;
+        BigInteger unblind;
+        synchronized (this) {
+            if (++uses > REFRESH_INTERVAL) {
+                refresh();
+                uses = 1;
+            }
+            blind = blindingFactor;
+            unblind = unblindingFactor;
+            blindingFactor = blindingFactor.multiply(blindingFactor).mod(n);
+            unblindingFactor = unblindingFactor.multiply(unblindingFactor).mod(n);
+        }
+        BigInteger blinded = AdvancedRSA.privateOperation(c.multiply(blind).mod(n), key);
+        return blinded.multiply(unblind).mod(n);
+    }
+
+    public RsaPrivateKey getKey() {
+        return key;
+    }
+
+    // Draws a new r in [2, n) that is invertible mod n
+    private synchronized void refresh() {
+        BigInteger r;
+        do {
+            r = new BigInteger(n.bitLength(), random);
+        } while (r.compareTo(BigInteger.ONE) <= 0 || r.compareTo(n) >= 0 || !r.gcd(n).equals(BigInteger.ONE));
+        blindingFactor = r.modPow(e, n);
+        unblindingFactor = r.modInverse(n);
+    }
+}
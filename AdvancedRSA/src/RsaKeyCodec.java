@@ -0,0 +1,346 @@
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+// Serialization of RsaPublicKey / RsaPrivateKey.
+//
+// Compact binary (used by RsaKeyStore):
+//   version (1) | type (1) | components, each as length (2) | unsigned big-endian magnitude
+//   public  components: n, e
+//   private components: n, e, d, p, q, dP, dQ, qInv
+// n and e come first in both types, so the public key can be read from a private record without decoding
+// the rest.
+//
+// DER / PEM use the standard containers, so keys can be exchanged with OpenSSL and java.security:
+//   public  = X.509 SubjectPublicKeyInfo ("PUBLIC KEY"), private = PKCS#8 ("PRIVATE KEY").
+// Decoding also accepts the bare PKCS#1 structures ("RSA PUBLIC KEY" / "RSA PRIVATE KEY"); any algorithm
+// other than rsaEncryption is rejected. Every decoded key is checked for consistency (p * q = n, CRT
+// parameters match), so a corrupt file fails here instead of producing wrong plaintexts later.
+public class RsaKeyCodec {
+
+    static final byte VERSION = 1;
+    static final byte TYPE_PUBLIC = 1;
+    static final byte TYPE_PRIVATE = 2;
+
+    // DER encoding of AlgorithmIdentifier { rsaEncryption (1.2.840.113549.1.1.1), NULL }
+    private static final byte[] RSA_ALGORITHM_ID = {
+        0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00
+    };
+
+    private static final int PEM_LINE_LENGTH = 64;
+
+    // 1. Compact binary
+    public static byte[] toCompact(RsaPublicKey key) {
+        return compact(TYPE_PUBLIC, key.getModulus(), key.getExponent());
+    }
+
+    public static byte[] toCompact(RsaPrivateKey key) {
+        return compact(TYPE_PRIVATE, key.getModulus(), key.getPublicExponent(), key.getPrivateExponent(),
+            key.getPrimeP(), key.getPrimeQ(), key.getPrimeExponentP(), key.getPrimeExponentQ(), key.getCrtCoefficient());
+    }
+
+    public static RsaPublicKey publicKeyFromCompact(byte[] encoded) {
+        return publicKeyFromCompact(ByteBuffer.wrap(encoded));
+    }
+
+    // Reads the public part of either record type, starting at the buffer's position
+    public static RsaPublicKey publicKeyFromCompact(ByteBuffer in) {
+        compactType(in);
+        BigInteger n = readComponent(in);
+        BigInteger e = readComponent(in);
+        return checked(new RsaPublicKey(e, n));
+    }
+
+    public static RsaPrivateKey privateKeyFromCompact(byte[] encoded) {
+        return privateKeyFromCompact(ByteBuffer.wrap(encoded));
+    }
+
+    public static RsaPrivateKey privateKeyFromCompact(ByteBuffer in) {
+        if (compactType(in) != TYPE_PRIVATE) {
+            throw new IllegalArgumentException("Record holds a public key only");
+        }
+        return checked(new RsaPrivateKey(readComponent(in), readComponent(in), readComponent(in), readComponent(in),
+            readComponent(in), readComponent(in), readComponent(in), readComponent(in)));
+    }
+
+    // 2. DER
+    public static byte[] toDer(RsaPublicKey key) {
+        byte[] pkcs1 = sequence(integer(key.getModulus()), integer(key.getExponent()));
+        byte[] bitString = new byte[pkcs1.length + 1]; // leading byte: no unused bits
+        System.arraycopy(pkcs1, 0, bitString, 1, pkcs1.length);
+        return sequence(RSA_ALGORITHM_ID, tagged(0x03, bitString));
+    }
+
+    public static byte[] toDer(RsaPrivateKey key) {
+        byte[] pkcs1 = sequence(integer(BigInteger.ZERO), integer(key.getModulus()), integer(key.getPublicExponent()),
+            integer(key.getPrivateExponent()), integer(key.getPrimeP()), integer(key.getPrimeQ()),
+            integer(key.getPrimeExponentP()), integer(key.getPrimeExponentQ()), integer(key.getCrtCoefficient()));
+        return sequence(integer(BigInteger.ZERO), RSA_ALGORITHM_ID, tagged(0x04, pkcs1));
+    }
+
+    public static RsaPublicKey publicKeyFromDer(byte[] der) {
+        DerReader in = new DerReader(der);
+        in.enter(0x30);
+        if (in.peek() == 0x30) {
+            // SubjectPublicKeyInfo: check the algorithm identifier, then unwrap the BIT STRING
+            in.expect(RSA_ALGORITHM_ID);
+            in.enter(0x03);
+            if (in.readByte() != 0) {
+                throw new IllegalArgumentException("Invalid DER: unexpected unused bits");
+            }
+            in.enter(0x30);
+        }
+        BigInteger n = in.readInteger();
+        BigInteger e = in.readInteger();
+        return checked(new RsaPublicKey(e, n));
+    }
+
+    public static RsaPrivateKey privateKeyFromDer(byte[] der) {
+        DerReader in = new DerReader(der);
+        in.enter(0x30);
+        in.readInteger(); // version
+        if (in.peek() == 0x30) {
+            // PKCS#8: check the algorithm identifier, then unwrap the OCTET STRING holding the PKCS#1 key
+            in.expect(RSA_ALGORITHM_ID);
+            in.enter(0x04);
+            in.enter(0x30);
+            in.readInteger();
+        }
+        return checked(new RsaPrivateKey(in.readInteger(), in.readInteger(), in.readInteger(), in.readInteger(),
+            in.readInteger(), in.readInteger(), in.readInteger(), in.readInteger()));
+    }
+
+    // 3. PEM
+    public static String toPem(RsaPublicKey key) {
+        return pem("PUBLIC KEY", toDer(key));
+    }
+
+    public static String toPem(RsaPrivateKey key) {
+        return pem("PRIVATE KEY", toDer(key));
+    }
+
+    public static RsaPublicKey publicKeyFromPem(String pem) {
+        return publicKeyFromDer(pemBody(pem, "PUBLIC KEY", "RSA PUBLIC KEY"));
+    }
+
+    public static RsaPrivateKey privateKeyFromPem(String pem) {
+        return privateKeyFromDer(pemBody(pem, "PRIVATE KEY", "RSA PRIVATE KEY"));
+    }
+
+    // --- Helpers ---
+
+    private static RsaPublicKey checked(RsaPublicKey key) {
+        if (key.getModulus().signum() <= 0 || key.getExponent().compareTo(BigInteger.ONE) <= 0) {
+            throw new IllegalArgumentException("Invalid RSA public key");
+        }
+        return key;
+    }
+
+    // Cheap structural checks: positive components, e > 1, n = p * q and matching CRT parameters
+    private static RsaPrivateKey checked(RsaPrivateKey key) {
+        BigInteger p = key.getPrimeP();
+        BigInteger q = key.getPrimeQ();
+        BigInteger d = key.getPrivateExponent();
+        BigInteger[] components = {key.getModulus(), d, p, q, key.getPrimeExponentP(), key.getPrimeExponentQ(),
+            key.getCrtCoefficient()};
+        for (BigInteger component : components) {
+            if (component.signum() <= 0) {
+                throw new IllegalArgumentException("Invalid RSA private key: non-positive component");
+            }
+        }
+        if (key.getPublicExponent().compareTo(BigInteger.ONE) <= 0) {
+            throw new IllegalArgumentException("Invalid RSA private key: public exponent must be greater than 1");
+        }
+        if (p.compareTo(BigInteger.ONE) <= 0 || q.compareTo(BigInteger.ONE) <= 0 || !p.multiply(q).equals(key.getModulus())) {
+            throw new IllegalArgumentException("Invalid RSA private key: p * q does not equal n");
+        }
+        if (!key.getPrimeExponentP().equals(d.mod(p.subtract(BigInteger.ONE)))
+                || !key.getPrimeExponentQ().equals(d.mod(q.subtract(BigInteger.ONE)))
+                || !key.getCrtCoefficient().multiply(q).mod(p).equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("Invalid RSA private key: inconsistent CRT parameters");
+        }
+        // d must invert e modulo lambda(n) = lcm(p-1, q-1), whether it was reduced mod lambda or phi
+        BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+        BigInteger qMinusOne = q.subtract(BigInteger.ONE);
+        BigInteger lambda = pMinusOne.divide(pMinusOne.gcd(qMinusOne)).multiply(qMinusOne);
+        if (!key.getPublicExponent().multiply(d).mod(lambda).equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("Invalid RSA private key: e * d is not 1 mod lcm(p-1, q-1)");
+        }
+        return key;
+    }
+
+    private static byte[] compact(byte type, BigInteger... components) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + components.length * 258);
+        out.write(VERSION);
+        out.write(type);
+        for (BigInteger component : components) {
+            byte[] magnitude = magnitude(component);
+            if (magnitude.length > 0xFFFF) {
+                throw new IllegalArgumentException("Key component too large");
+            }
+            out.write(magnitude.length >>> 8);
+            out.write(magnitude.length);
+            out.write(magnitude, 0, magnitude.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte compactType(ByteBuffer in) {
+        if (in.remaining() < 2 || in.get() != VERSION) {
+            throw new IllegalArgumentException("Unsupported key record version");
+        }
+        byte type = in.get();
+        if (type != TYPE_PUBLIC && type != TYPE_PRIVATE) {
+            throw new IllegalArgumentException("Unknown key record type: " + type);
+        }
+        return type;
+    }
+
+    private static BigInteger readComponent(ByteBuffer in) {
+        if (in.remaining() < 2) {
+            throw new IllegalArgumentException("Truncated key record");
+        }
+        int length = in.getShort() & 0xFFFF;
+        if (in.remaining() < length) {
+            throw new IllegalArgumentException("Truncated key record");
+        }
+        byte[] magnitude = new byte[length];
+        in.get(magnitude);
+        return new BigInteger(1, magnitude);
+    }
+
+    // Unsigned big-endian bytes without the sign byte BigInteger.toByteArray adds
+    private static byte[] magnitude(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static byte[] integer(BigInteger value) {
+        return tagged(0x02, value.toByteArray()); // toByteArray is already minimal two's complement
+    }
+
+    private static byte[] sequence(byte[]... elements) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] element : elements) {
+            content.write(element, 0, element.length);
+        }
+        return tagged(0x30, content.toByteArray());
+    }
+
+    private static byte[] tagged(int tag, byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 6);
+        out.write(tag);
+        int length = content.length;
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int lengthBytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | lengthBytes);
+            for (int shift = (lengthBytes - 1) * 8; shift >= 0; shift -= 8) {
+                out.write(length >>> shift);
+            }
+        }
+        out.write(content, 0, content.length);
+        return out.toByteArray();
+    }
+
+    private static String pem(String label, byte[] der) {
+        String body = Base64.getMimeEncoder(PEM_LINE_LENGTH, "\n".getBytes(StandardCharsets.US_ASCII))
+            .encodeToString(der);
+        return "-----BEGIN " + label + "-----\n" + body + "\n-----END " + label + "-----\n";
+    }
+
+    // Body of the first PEM block with one of the given labels; other blocks (e.g. "ENCRYPTED PRIVATE KEY") are skipped
+    private static byte[] pemBody(String pem, String... labels) {
+        int begin = pem.indexOf("-----BEGIN ");
+        while (begin >= 0) {
+            int labelEnd = pem.indexOf("-----", begin + 11);
+            if (labelEnd < 0) {
+                break;
+            }
+            String label = pem.substring(begin + 11, labelEnd);
+            if (Arrays.asList(labels).contains(label)) {
+                int end = pem.indexOf("-----END " + label + "-----", labelEnd);
+                if (end < 0) {
+                    break;
+                }
+                return Base64.getMimeDecoder().decode(pem.substring(labelEnd + 5, end));
+            }
+            begin = pem.indexOf("-----BEGIN ", labelEnd);
+        }
+        throw new IllegalArgumentException("No " + String.join(" or ", labels) + " PEM block found");
+    }
+
+    // Minimal DER reader: definite lengths only, which is all DER allows
+    private static class DerReader {
+        private final byte[] der;
+        private int position;
+
+        DerReader(byte[] der) {
+            this.der = der;
+        }
+
+        int peek() {
+            check(1);
+            return der[position] & 0xFF;
+        }
+
+        int readByte() {
+            check(1);
+            return der[position++] & 0xFF;
+        }
+
+        // Consume a tag and its length, leaving the position at the start of the content
+        int enter(int tag) {
+            if (readByte() != tag) {
+                throw new IllegalArgumentException("Invalid DER: expected tag 0x" + Integer.toHexString(tag));
+            }
+            int length = readByte();
+            if (length >= 0x80) {
+                int lengthBytes = length & 0x7F;
+                if (lengthBytes == 0 || lengthBytes > 3) {
+                    throw new IllegalArgumentException("Invalid DER length");
+                }
+                length = 0;
+                for (int i = 0; i < lengthBytes; i++) {
+                    length = (length << 8) | readByte();
+                }
+            }
+            check(length);
+            return length;
+        }
+
+        // Consume an element that must equal the given encoding byte for byte
+        void expect(byte[] encoding) {
+            check(encoding.length);
+            if (!Arrays.equals(Arrays.copyOfRange(der, position, position + encoding.length), encoding)) {
+                throw new IllegalArgumentException("Unsupported key algorithm: not rsaEncryption");
+            }
+            position += encoding.length;
+        }
+
+        BigInteger readInteger() {
+            int length = enter(0x02);
+            if (length == 0) {
+                throw new IllegalArgumentException("Invalid DER: empty INTEGER");
+            }
+            BigInteger value = new BigInteger(Arrays.copyOfRange(der, position, position + length));
+            position += length;
+            return value;
+        }
+
+        private void check(int length) {
+            if (length < 0 || der.length - position < length) {
+                throw new IllegalArgumentException("Invalid DER: truncated");
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+// Matching RSA public and private keys
+public class RsaKeyPair {
+    private final RsaPublicKey publicKey;
+    private final RsaPrivateKey privateKey;
+
+    public RsaKeyPair(RsaPublicKey publicKey, RsaPrivateKey privateKey) {
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+    }
+
+    public RsaPublicKey getPublicKey() { return publicKey; }
+    public RsaPrivateKey getPrivateKey() { return privateKey; }
+}
@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded pool of pre-generated RSA key pairs.
+//
+// Background daemon threads keep the pool filled to its target depth; because the queue is bounded,
+// a refill thread waits once the pool is full and resumes as soon as a key is taken. Handing
+// out a key is an O(1) queue operation, so provisioning latency no longer depends on how long the
+// prime search happens to take. Depth, refill rate and misses (takes that found the pool empty) are
+// exposed for monitoring. After close() every take or poll throws IllegalStateException, including
+// calls that were already waiting (they re-check the pool state every WAKE_INTERVAL_MILLIS).
+public class RsaKeyPool implements AutoCloseable {
+
+    private static final long WAKE_INTERVAL_MILLIS = 100;
+
+    private final int bitLength;
+    private final ArrayBlockingQueue<RsaKeyPair> pool;
+    private final List<Thread> refillers = new ArrayList<>();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong generationNanos = new AtomicLong();
+    private final AtomicLong taken = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean running = true;
+
+    public RsaKeyPool(int bitLength, int targetDepth) {
+        this(bitLength, targetDepth, 1);
+    }
+
+    public RsaKeyPool(int bitLength, int targetDepth, int refillThreads) {
+        if (targetDepth <= 0 || refillThreads <= 0) {
+            throw new IllegalArgumentException("targetDepth and refillThreads must be positive");
+        }
+        this.bitLength = bitLength;
+        this.pool = new ArrayBlockingQueue<>(targetDepth);
+        for (int i = 0; i < refillThreads; i++) {
+            Thread refiller = new Thread(this::refill, "rsa-key-pool-" + bitLength + "-" + i);
+            refiller.setDaemon(true);
+            refillers.add(refiller);
+            refiller.start();
+        }
+    }
+
+    // 1. Hand out a key: take() waits for one, poll() returns null when empty,
+    // takeOrGenerate() falls back to generating on the caller's thread
+    public RsaKeyPair take() throws InterruptedException {
+        checkOpen();
+        RsaKeyPair keyPair = pool.poll();
+        if (keyPair == null) {
+            misses.incrementAndGet();
+            while ((keyPair = pool.poll(WAKE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkOpen();
+            }
+        }
+        taken.incrementAndGet();
+        return keyPair;
+    }
+
+    public RsaKeyPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+        checkOpen();
+        RsaKeyPair keyPair = pool.poll();
+        if (keyPair == null) {
+            misses.incrementAndGet();
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+                keyPair = pool.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(WAKE_INTERVAL_MILLIS)),
+                    TimeUnit.NANOSECONDS);
+                if (keyPair != null) {
+                    break;
+                }
+                checkOpen();
+            }
+        }
+        if (keyPair != null) {
+            taken.incrementAndGet();
+        }
+        return keyPair;
+    }
+
+    public RsaKeyPair takeOrGenerate() {
+        checkOpen();
+        RsaKeyPair keyPair = pool.poll();
+        if (keyPair == null) {
+            misses.incrementAndGet();
+            keyPair = AdvancedRSA.generateKeyPair(bitLength);
+        }
+        taken.incrementAndGet();
+        return keyPair;
+    }
+
+    // 2. Background refill loop; while the pool is full it offers the key every WAKE_INTERVAL_MILLIS and
+    // gives up once the pool is closed, so a refiller never stays blocked on a full queue after close()
+    private void refill() {
+        try {
+            while (running) {
+                long start = System.nanoTime();
+                RsaKeyPair keyPair = AdvancedRSA.generateKeyPair(bitLength);
+                generationNanos.addAndGet(System.nanoTime() - start);
+                generated.incrementAndGet();
+                boolean added = false;
+                while (running && !added) {
+                    added = pool.offer(keyPair, WAKE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (!running) {
+                    pool.clear(); // a key offered while close() ran would otherwise outlive it
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 3. Metrics
+    public int getDepth() {
+        return pool.size();
+    }
+
+    public int getTargetDepth() {
+        return pool.size() + pool.remainingCapacity();
+    }
+
+    public long getGeneratedCount() {
+        return generated.get();
+    }
+
+    public long getTakenCount() {
+        return taken.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    // Keys generated per second since the pool was created
+    public double getRefillRate() {
+        return generated.get() / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    // Average time one refill thread spends generating one key pair
+    public double getAverageGenerationMillis() {
+        long count = generated.get();
+        return count == 0 ? 0 : generationNanos.get() / 1e6 / count;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread refiller : refillers) {
+            refiller.interrupt();
+        }
+        pool.clear();
+    }
+
+    private void checkOpen() {
+        if (!running) {
+            throw new IllegalStateException("Key pool is closed");
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-only keystore file of RSA keys, memory-mapped and decoded lazily.
+//
+// Layout:
+//   header  = magic "RSKS" (4) | version (1) | key count (4)
+//   index   = key count entries of key ID (4) | record offset (4) | record length (4), sorted by key ID
+//   records = RsaKeyCodec compact records (public or private)
+//
+// open() maps the file and checks the header only, so start-up cost does not depend on how many keys
+// the file holds. A lookup binary-searches the mapped index, decodes that one record and caches the
+// result; keys that are never used are never parsed. The file is limited to 2 GB (one mapping).
+public class RsaKeyStore {
+
+    private static final int MAGIC = 0x52534B53; // "RSKS"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 9;
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    private final ByteBuffer mapped;
+    private final int count;
+    private final ConcurrentHashMap<Integer, RsaPrivateKey> privateKeys = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, RsaPublicKey> publicKeys = new ConcurrentHashMap<>();
+
+    private RsaKeyStore(ByteBuffer mapped, int count) {
+        this.mapped = mapped;
+        this.count = count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        // A handful of distinct keys repeated under many IDs is enough to show load-time behaviour
+        RsaPrivateKey[] distinct = new RsaPrivateKey[8];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = AdvancedRSA.generateKeyPair(2048).getPrivateKey();
+        }
+        Map<Integer, RsaPrivateKey> keys = new TreeMap<>();
+        for (int id = 0; id < keyCount; id++) {
+            keys.put(id, distinct[id % distinct.length]);
+        }
+        Path file = Files.createTempFile("rsa-keystore", ".bin");
+        try {
+            write(file, keys);
+
+            long start = System.nanoTime();
+            RsaKeyStore store = open(file);
+            long openNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            RsaPrivateKey first = store.getPrivateKey(keyCount / 2);
+            long firstNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int id = 0; id < keyCount; id++) {
+                store.getPrivateKey(id);
+            }
+            long allNanos = System.nanoTime() - start;
+
+            System.out.printf("%d keys, %d KB: open %.3f ms, first lookup %.3f ms, decode all %.1f ms, intact: %b%n",
+                keyCount, Files.size(file) / 1024, openNanos / 1e6, firstNanos / 1e6, allNanos / 1e6,
+                first.getModulus().equals(distinct[(keyCount / 2) % distinct.length].getModulus()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // 1. Write a keystore file; replaces the target atomically so readers never see a partial file
+    public static void write(Path file, Map<Integer, RsaPrivateKey> keys) throws IOException {
+        TreeMap<Integer, byte[]> records = new TreeMap<>();
+        for (Map.Entry<Integer, RsaPrivateKey> entry : keys.entrySet()) {
+            records.put(entry.getKey(), RsaKeyCodec.toCompact(entry.getValue()));
+        }
+        writeRecords(file, records);
+    }
+
+    public static void writePublic(Path file, Map<Integer, RsaPublicKey> keys) throws IOException {
+        TreeMap<Integer, byte[]> records = new TreeMap<>();
+        for (Map.Entry<Integer, RsaPublicKey> entry : keys.entrySet()) {
+            records.put(entry.getKey(), RsaKeyCodec.toCompact(entry.getValue()));
+        }
+        writeRecords(file, records);
+    }
+
+    private static void writeRecords(Path file, TreeMap<Integer, byte[]> records) throws IOException {
+        long size = HEADER_SIZE + (long) records.size() * INDEX_ENTRY_SIZE;
+        for (byte[] record : records.values()) {
+            size += record.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Keystore larger than 2 GB");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).put(VERSION).putInt(records.size());
+        int offset = HEADER_SIZE + records.size() * INDEX_ENTRY_SIZE;
+        for (Map.Entry<Integer, byte[]> entry : records.entrySet()) {
+            out.putInt(entry.getKey()).putInt(offset).putInt(entry.getValue().length);
+            offset += entry.getValue().length;
+        }
+        for (byte[] record : records.values()) {
+            out.put(record);
+        }
+        out.flip();
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "rsa-keystore", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // 2. Map a keystore file; only the header is read here
+    public static RsaKeyStore open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Keystore larger than 2 GB: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.get(4) != VERSION) {
+            throw new IOException("Not an RSA keystore file: " + file);
+        }
+        int count = mapped.getInt(5);
+        if (count < 0 || (long) HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE > mapped.capacity()) {
+            throw new IOException("Corrupt keystore index: " + file);
+        }
+        return new RsaKeyStore(mapped, count);
+    }
+
+    // 3. Lazy lookups; return null for unknown IDs
+    public RsaPrivateKey getPrivateKey(int id) {
+        RsaPrivateKey key = privateKeys.get(id);
+        if (key == null) {
+            ByteBuffer record = record(id);
+            if (record == null) {
+                return null;
+            }
+            key = RsaKeyCodec.privateKeyFromCompact(record);
+            RsaPrivateKey raced = privateKeys.putIfAbsent(id, key);
+            if (raced != null) {
+                key = raced;
+            }
+        }
+        return key;
+    }
+
+    // Decodes only n and e, also for private records
+    public RsaPublicKey getPublicKey(int id) {
+        RsaPublicKey key = publicKeys.get(id);
+        if (key == null) {
+            RsaPrivateKey privateKey = privateKeys.get(id);
+            if (privateKey != null) {
+                key = privateKey.toPublicKey();
+            } else {
+                ByteBuffer record = record(id);
+                if (record == null) {
+                    return null;
+                }
+                key = RsaKeyCodec.publicKeyFromCompact(record);
+            }
+            RsaPublicKey raced = publicKeys.putIfAbsent(id, key);
+            if (raced != null) {
+                key = raced;
+            }
+        }
+        return key;
+    }
+
+    public boolean contains(int id) {
+        return indexOf(id) >= 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Number of keys decoded so far
+    public int getDecodedCount() {
+        return privateKeys.size() + publicKeys.size();
+    }
+
+    // A view of one record, or null if the ID is not in the index
+    private ByteBuffer record(int id) {
+        int entry = indexOf(id);
+        if (entry < 0) {
+            return null;
+        }
+        int position = HEADER_SIZE + entry * INDEX_ENTRY_SIZE;
+        int offset = mapped.getInt(position + 4);
+        int length = mapped.getInt(position + 8);
+        if (offset < 0 || length < 0 || (long) offset + length > mapped.capacity()) {
+            throw new IllegalStateException("Corrupt keystore record for key " + id);
+        }
+        ByteBuffer record = mapped.duplicate(); // own position and limit, safe across threads
+        record.limit(offset + length).position(offset);
+        return record;
+    }
+
+    // Binary search over the sorted index using absolute reads
+    private int indexOf(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = mapped.getInt(HEADER_SIZE + middle * INDEX_ENTRY_SIZE);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,228 @@
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+// RSA encryption padding schemes that work in place on a caller-supplied block.
+//
+// pad() writes the encoded message into a block of exactly modulus length; unpad() decodes such a block
+// where it lies and returns the offset at which the message starts (it runs to the end of the block), so
+// neither direction allocates or copies more than the caller asks for.
+//
+//   PKCS1_V1_5: 0x00 | 0x02 | at least 8 non-zero random bytes | 0x00 | message
+//   OAEP:       RFC 8017 EME-OAEP with SHA-256 and MGF1-SHA-256, empty label
+public enum RsaPadding {
+
+    PKCS1_V1_5 {
+        @Override
+        public int maxMessageLength(int keyLength) {
+            return keyLength - 11;
+        }
+
+        @Override
+        void encode(byte[] message, int offset, int length, byte[] block, SecureRandom random) {
+            int separator = block.length - length - 1;
+            random.nextBytes(block);
+            block[0] = 0x00;
+            block[1] = 0x02;
+            // A zero in the padding would be mistaken for the separator
+            for (int i = 2; i < separator; i++) {
+                while (block[i] == 0) {
+                    block[i] = (byte) random.nextInt(256);
+                }
+            }
+            block[separator] = 0x00;
+            System.arraycopy(message, offset, block, separator + 1, length);
+        }
+
+        @Override
+        public int unpad(byte[] block) {
+            if (block.length < 11 || block[0] != 0x00 || block[1] != 0x02) {
+                throw new IllegalArgumentException("Invalid PKCS#1 v1.5 padding");
+            }
+            int i = 2;
+            while (i < block.length && block[i] != 0x00) {
+                i++;
+            }
+            if (i == block.length || i < 10) {
+                throw new IllegalArgumentException("Invalid PKCS#1 v1.5 padding");
+            }
+            return i + 1;
+        }
+
+        @Override
+        int unpadConstantTime(byte[] block) {
+            int good = equal(block[0] & 0xFF, 0) & equal(block[1] & 0xFF, 2);
+            int looking = -1;
+            int separator = 0;
+            for (int i = 2; i < block.length; i++) {
+                int zero = equal(block[i] & 0xFF, 0);
+                separator |= looking & zero & i;
+                looking &= ~zero;
+            }
+            // A separator must exist and follow at least 8 padding bytes
+            good &= ~looking & ~((separator - 10) >> 31);
+            if (good == 0) {
+                throw new IllegalArgumentException("Invalid PKCS#1 v1.5 padding");
+            }
+            return separator + 1;
+        }
+    },
+
+    OAEP {
+        @Override
+        public int maxMessageLength(int keyLength) {
+            return keyLength - 2 * HASH_LENGTH - 2;
+        }
+
+        @Override
+        void encode(byte[] message, int offset, int length, byte[] block, SecureRandom random) {
+            // block = 0x00 | seed | DB, with DB = lHash | zeros | 0x01 | message
+            int dbOffset = 1 + HASH_LENGTH;
+            int dbLength = block.length - dbOffset;
+            int messageStart = block.length - length;
+            block[0] = 0x00;
+            System.arraycopy(EMPTY_LABEL_HASH, 0, block, dbOffset, HASH_LENGTH);
+            for (int i = dbOffset + HASH_LENGTH; i < messageStart - 1; i++) {
+                block[i] = 0x00;
+            }
+            block[messageStart - 1] = 0x01;
+            System.arraycopy(message, offset, block, messageStart, length);
+
+            byte[] seed = scratch.get();
+            random.nextBytes(seed);
+            System.arraycopy(seed, 0, block, 1, HASH_LENGTH);
+
+            // maskedDB = DB xor MGF1(seed), then maskedSeed = seed xor MGF1(maskedDB)
+            mgf1Xor(block, 1, HASH_LENGTH, block, dbOffset, dbLength);
+            mgf1Xor(block, dbOffset, dbLength, block, 1, HASH_LENGTH);
+        }
+
+        @Override
+        public int unpad(byte[] block) {
+            int bad = unmask(block);
+            // Find the 0x01 separator
+            int i = 1 + 2 * HASH_LENGTH;
+            while (i < block.length && block[i] == 0x00) {
+                i++;
+            }
+            if (bad != 0 || i == block.length || block[i] != 0x01) {
+                throw new IllegalArgumentException("Invalid OAEP padding");
+            }
+            return i + 1;
+        }
+
+        @Override
+        int unpadConstantTime(byte[] block) {
+            int good = equal(unmask(block), 0);
+            int looking = -1;
+            int separator = 0;
+            for (int i = 1 + 2 * HASH_LENGTH; i < block.length; i++) {
+                int value = block[i] & 0xFF;
+                int one = equal(value, 1);
+                // Before the separator only zero bytes are allowed
+                good &= ~(looking & ~one & ~equal(value, 0));
+                separator |= looking & one & i;
+                looking &= ~one;
+            }
+            good &= ~looking;
+            if (good == 0) {
+                throw new IllegalArgumentException("Invalid OAEP padding");
+            }
+            return separator + 1;
+        }
+
+        // Removes both MGF1 masks in place; returns 0 only if the leading byte and label hash are right
+        private int unmask(byte[] block) {
+            int dbOffset = 1 + HASH_LENGTH;
+            int dbLength = block.length - dbOffset;
+            if (block.length < 2 * HASH_LENGTH + 2) {
+                throw new IllegalArgumentException("Invalid OAEP padding");
+            }
+            mgf1Xor(block, dbOffset, dbLength, block, 1, HASH_LENGTH);
+            mgf1Xor(block, 1, HASH_LENGTH, block, dbOffset, dbLength);
+
+            // Check the leading zero and the label hash without exiting early
+            int bad = block[0];
+            for (int i = 0; i < HASH_LENGTH; i++) {
+                bad |= block[dbOffset + i] ^ EMPTY_LABEL_HASH[i];
+            }
+            return bad & 0xFF;
+        }
+    };
+
+    static final int HASH_LENGTH = 32; // SHA-256
+    private static final byte[] EMPTY_LABEL_HASH;
+
+    static {
+        try {
+            EMPTY_LABEL_HASH = MessageDigest.getInstance("SHA-256").digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Per-thread digest and one hash-sized scratch buffer, so MGF1 runs without allocating
+    private static final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[HASH_LENGTH]);
+
+    // 1. Largest message that fits a modulus of keyLength bytes
+    public abstract int maxMessageLength(int keyLength);
+
+    // 2. Encode message[offset, offset + length) into block, whose length is the modulus length in bytes
+    public void pad(byte[] message, int offset, int length, byte[] block, SecureRandom random) {
+        if (length > maxMessageLength(block.length)) {
+            throw new IllegalArgumentException("Message too long to encrypt");
+        }
+        encode(message, offset, length, block, random);
+    }
+
+    abstract void encode(byte[] message, int offset, int length, byte[] block, SecureRandom random);
+
+    // 3. Decode block in place; returns the offset of the message, which ends at block.length
+    public abstract int unpad(byte[] block);
+
+    // Same result as unpad, but the time taken does not depend on where the padding goes wrong or where the
+    // message starts; only the final valid/invalid decision branches (used by RsaBlindedEngine)
+    abstract int unpadConstantTime(byte[] block);
+
+    // -1 if a == b, else 0, for a and b in 0..255
+    private static int equal(int a, int b) {
+        return ((a ^ b) - 1) >> 31;
+    }
+
+    // This thread's SHA-256 instance (shared with RsaSignatureScheme)
+    static MessageDigest sha256() {
+        return digest.get();
+    }
+
+    // XORs MGF1-SHA-256(seed) over target; seed and target must not overlap
+    static void mgf1Xor(byte[] seed, int seedOffset, int seedLength,
+                        byte[] target, int targetOffset, int targetLength) {
+        MessageDigest sha256 = digest.get();
+        byte[] mask = scratch.get();
+        for (int counter = 0, done = 0; done < targetLength; counter++) {
+            sha256.update(seed, seedOffset, seedLength);
+            sha256.update((byte) (counter >>> 24));
+            sha256.update((byte) (counter >>> 16));
+            sha256.update((byte) (counter >>> 8));
+            sha256.update((byte) counter);
+            try {
+                sha256.digest(mask, 0, HASH_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            int chunk = Math.min(HASH_LENGTH, targetLength - done);
+            for (int i = 0; i < chunk; i++) {
+                target[targetOffset + done + i] ^= mask[i];
+            }
+            done += chunk;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.math.BigInteger;
+
+// RSA private key kept in Chinese Remainder Theorem form.
+// Besides (d, n) it holds the primes p and q and the precomputed values
+// dP = d mod (p-1), dQ = d mod (q-1) and qInv = q^-1 mod p, so decryption can run two
+// half-size exponentiations instead of one full-size modPow(d, n).
+public class RsaPrivateKey {
+    private final BigInteger n;
+    private final BigInteger e;
+    private final BigInteger d;
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger dP;
+    private final BigInteger dQ;
+    private final BigInteger qInv;
+
+    public RsaPrivateKey(BigInteger n, BigInteger e, BigInteger d, BigInteger p, BigInteger q,
+                         BigInteger dP, BigInteger dQ, BigInteger qInv) {
+        this.n = n;
+        this.e = e;
+        this.d = d;
+        this.p = p;
+        this.q = q;
+        this.dP = dP;
+        this.dQ = dQ;
+        this.qInv = qInv;
+    }
+
+    // Derive every CRT parameter from the two primes and the public exponent
+    public static RsaPrivateKey fromPrimes(BigInteger p, BigInteger q, BigInteger e) {
+        BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+        BigInteger qMinusOne = q.subtract(BigInteger.ONE);
+        BigInteger phiN = pMinusOne.multiply(qMinusOne);
+        BigInteger d = e.modInverse(phiN);
+        return new RsaPrivateKey(p.multiply(q), e, d, p, q,
+            d.mod(pMinusOne), d.mod(qMinusOne), q.modInverse(p));
+    }
+
+    public BigInteger getModulus() { return n; }
+    public BigInteger getPublicExponent() { return e; }
+    public BigInteger getPrivateExponent() { return d; }
+    public BigInteger getPrimeP() { return p; }
+    public BigInteger getPrimeQ() { return q; }
+    public BigInteger getPrimeExponentP() { return dP; }
+    public BigInteger getPrimeExponentQ() { return dQ; }
+    public BigInteger getCrtCoefficient() { return qInv; }
+
+    public int getModulusBytes() { return (n.bitLength() + 7) / 8; }
+
+    public RsaPublicKey toPublicKey() {
+        return new RsaPublicKey(e, n);
+    }
+}
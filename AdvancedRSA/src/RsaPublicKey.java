@@ -0,0 +1,18 @@
+import java.math.BigInteger;
+
+// RSA public key (e, n)
+public class RsaPublicKey {
+    private final BigInteger e;
+    private final BigInteger n;
+
+    public RsaPublicKey(BigInteger e, BigInteger n) {
+        this.e = e;
+        this.n = n;
+    }
+
+    public BigInteger getExponent() { return e; }
+    public BigInteger getModulus() { return n; }
+
+    // Modulus size in whole bytes, i.e. the length of every padded block
+    public int getModulusBytes() { return (n.bitLength() + 7) / 8; }
+}
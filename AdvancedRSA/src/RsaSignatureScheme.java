@@ -0,0 +1,155 @@
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+// RSA signature encodings of a SHA-256 digest, written and checked in place in a modulus-length block.
+//
+//   PKCS1_V1_5: RFC 8017 EMSA-PKCS1-v1_5: 0x00 | 0x01 | 0xFF... | 0x00 | DigestInfo(SHA-256) | digest
+//   PSS:        RFC 8017 EMSA-PSS with SHA-256, MGF1-SHA-256, a 32-byte random salt and trailer 0xBC
+//
+// Both are implemented here rather than through java.security.Signature so they run on the repository's
+// own key classes and CRT private operation, and because RSASSA-PSS is not available before JDK 11.
+public enum RsaSignatureScheme {
+
+    PKCS1_V1_5 {
+        @Override
+        void encode(byte[] digest, byte[] block, int modulusBits, SecureRandom random) {
+            int digestInfo = block.length - SHA256_DIGEST_INFO.length - HASH_LENGTH;
+            checkKeySize(digestInfo - 1 >= 10);
+            block[0] = 0x00;
+            block[1] = 0x01;
+            for (int i = 2; i < digestInfo - 1; i++) {
+                block[i] = (byte) 0xFF;
+            }
+            block[digestInfo - 1] = 0x00;
+            System.arraycopy(SHA256_DIGEST_INFO, 0, block, digestInfo, SHA256_DIGEST_INFO.length);
+            System.arraycopy(digest, 0, block, block.length - HASH_LENGTH, HASH_LENGTH);
+        }
+
+        @Override
+        boolean verify(byte[] digest, byte[] block, int modulusBits) {
+            int digestInfo = block.length - SHA256_DIGEST_INFO.length - HASH_LENGTH;
+            if (digestInfo - 1 < 10) {
+                return false;
+            }
+            // Compare against the expected encoding byte by byte without building it
+            int bad = block[0] | (block[1] ^ 0x01) | block[digestInfo - 1];
+            for (int i = 2; i < digestInfo - 1; i++) {
+                bad |= block[i] ^ (byte) 0xFF;
+            }
+            for (int i = 0; i < SHA256_DIGEST_INFO.length; i++) {
+                bad |= block[digestInfo + i] ^ SHA256_DIGEST_INFO[i];
+            }
+            for (int i = 0; i < HASH_LENGTH; i++) {
+                bad |= block[block.length - HASH_LENGTH + i] ^ digest[i];
+            }
+            return bad == 0;
+        }
+    },
+
+    PSS {
+        @Override
+        void encode(byte[] digest, byte[] block, int modulusBits, SecureRandom random) {
+            // EM = maskedDB | H | 0xBC, with DB = zeros | 0x01 | salt and H = SHA-256(8 zero bytes | digest | salt)
+            int emLength = (modulusBits - 1 + 7) / 8;
+            int em = block.length - emLength; // 1 when the modulus bit length is 1 mod 8, else 0
+            int dbLength = emLength - HASH_LENGTH - 1;
+            int salt = em + dbLength - SALT_LENGTH;
+            int h = em + dbLength;
+            checkKeySize(emLength >= HASH_LENGTH + SALT_LENGTH + 2);
+
+            for (int i = 0; i < salt - 1; i++) {
+                block[i] = 0x00;
+            }
+            block[salt - 1] = 0x01;
+            byte[] saltBytes = scratch.get();
+            random.nextBytes(saltBytes);
+            System.arraycopy(saltBytes, 0, block, salt, SALT_LENGTH);
+
+            MessageDigest sha256 = RsaPadding.sha256();
+            sha256.update(PSS_ZEROS);
+            sha256.update(digest, 0, HASH_LENGTH);
+            sha256.update(block, salt, SALT_LENGTH);
+            digestInto(sha256, block, h);
+            block[block.length - 1] = (byte) 0xBC;
+
+            RsaPadding.mgf1Xor(block, h, HASH_LENGTH, block, em, dbLength);
+            block[em] &= topByteMask(modulusBits, emLength);
+        }
+
+        @Override
+        boolean verify(byte[] digest, byte[] block, int modulusBits) {
+            int emLength = (modulusBits - 1 + 7) / 8;
+            int em = block.length - emLength;
+            int dbLength = emLength - HASH_LENGTH - 1;
+            int salt = em + dbLength - SALT_LENGTH;
+            int h = em + dbLength;
+            int mask = topByteMask(modulusBits, emLength);
+            if (emLength < HASH_LENGTH + SALT_LENGTH + 2 || (em == 1 && block[0] != 0)
+                    || block[block.length - 1] != (byte) 0xBC || (block[em] & ~mask) != 0) {
+                return false;
+            }
+
+            RsaPadding.mgf1Xor(block, h, HASH_LENGTH, block, em, dbLength);
+            block[em] &= mask;
+            int bad = block[salt - 1] ^ 0x01;
+            for (int i = em; i < salt - 1; i++) {
+                bad |= block[i];
+            }
+
+            MessageDigest sha256 = RsaPadding.sha256();
+            sha256.update(PSS_ZEROS);
+            sha256.update(digest, 0, HASH_LENGTH);
+            sha256.update(block, salt, SALT_LENGTH);
+            byte[] expected = scratch.get();
+            digestInto(sha256, expected, 0);
+            for (int i = 0; i < HASH_LENGTH; i++) {
+                bad |= block[h + i] ^ expected[i];
+            }
+            return bad == 0;
+        }
+    };
+
+    static final int HASH_LENGTH = RsaPadding.HASH_LENGTH;
+    private static final int SALT_LENGTH = HASH_LENGTH;
+    private static final byte[] PSS_ZEROS = new byte[8];
+
+    // DER prefix of DigestInfo { sha256, NULL } followed by an OCTET STRING of 32 bytes
+    private static final byte[] SHA256_DIGEST_INFO = {
+        0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01,
+        0x05, 0x00, 0x04, 0x20
+    };
+
+    // Per-thread salt / hash buffer
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[HASH_LENGTH]);
+
+    // 1. Encode a SHA-256 digest into block, whose length is the modulus length in bytes
+    abstract void encode(byte[] digest, byte[] block, int modulusBits, SecureRandom random);
+
+    // 2. Check that block (signature ^ e mod n, modulus length) encodes digest; may overwrite block
+    abstract boolean verify(byte[] digest, byte[] block, int modulusBits);
+
+    // SHA-256 of the whole message
+    static byte[] digest(byte[] message) {
+        return RsaPadding.sha256().digest(message);
+    }
+
+    private static void checkKeySize(boolean largeEnough) {
+        if (!largeEnough) {
+            throw new IllegalArgumentException("Key too small for a SHA-256 signature");
+        }
+    }
+
+    // Clears the bits of the first EM byte that lie above the top bit of (modulus bits - 1)
+    private static byte topByteMask(int modulusBits, int emLength) {
+        return (byte) (0xFF >>> (8 * emLength - (modulusBits - 1)));
+    }
+
+    private static void digestInto(MessageDigest sha256, byte[] out, int offset) {
+        try {
+            sha256.digest(out, offset, HASH_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
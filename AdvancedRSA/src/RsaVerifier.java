@@ -0,0 +1,60 @@
+import java.math.BigInteger;
+
+// Verification-only view of an RSA public key.
+//
+// Verification needs just one modPow with the public exponent (65537, a 17-bit exponent) instead of the
+// private CRT operation, so it is far cheaper than signing. The object precomputes the modulus length and
+// bit size once, holds no mutable state and is safe to share between threads: create one per key and keep
+// it (for example in a map keyed by key ID) for services that verify much more often than they sign.
+public final class RsaVerifier {
+
+    private final RsaPublicKey key;
+    private final RsaSignatureScheme scheme;
+    private final BigInteger e;
+    private final BigInteger n;
+    private final int keyLength;
+    private final int modulusBits;
+
+    public RsaVerifier(RsaPublicKey key) {
+        this(key, RsaSignatureScheme.PKCS1_V1_5);
+    }
+
+    public RsaVerifier(RsaPublicKey key, RsaSignatureScheme scheme) {
+        this.key = key;
+        this.scheme = scheme;
+        this.e = key.getExponent();
+        this.n = key.getModulus();
+        this.keyLength = key.getModulusBytes();
+        this.modulusBits = n.bitLength();
+    }
+
+    // 1. Verify a signature over the SHA-256 digest of message
+    public boolean verify(byte[] message, byte[] signature) {
+        return verifyDigest(RsaSignatureScheme.digest(message), signature);
+    }
+
+    // 2. Verify a signature over an already computed SHA-256 digest
+    public boolean verifyDigest(byte[] digest, byte[] signature) {
+        if (digest.length != RsaSignatureScheme.HASH_LENGTH) {
+            throw new IllegalArgumentException("Expected a SHA-256 digest");
+        }
+        if (signature.length != keyLength) {
+            return false;
+        }
+        BigInteger s = new BigInteger(1, signature);
+        if (s.compareTo(n) >= 0) {
+            return false;
+        }
+        byte[] block = AdvancedRSA.block(keyLength);
+        AdvancedRSA.writeFixedLength(s.modPow(e, n), block, 0, keyLength);
+        return scheme.verify(digest, block, modulusBits);
+    }
+
+    public RsaPublicKey getPublicKey() {
+        return key;
+    }
+
+    public RsaSignatureScheme getScheme() {
+        return scheme;
+    }
+}
@@ -0,0 +1,294 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import javax.crypto.SecretKey;
+
+/**
+ * Micro-benchmarks for AdvancedAES, AdvancedRSA and EncryptionAlgorithm.
+ *
+ * Each benchmark is warmed up, then measured over several fixed-length iterations. For every
+ * benchmark the harness reports throughput (ops/s), average time per operation and the allocation
+ * rate, measured with the per-thread allocation counter of the HotSpot ThreadMXBean (the same
+ * counter JMH's gc profiler reads). Results can be saved to a CSV file and compared against a
+ * previously saved baseline to fail a build on throughput regressions.
+ *
+ * Usage: java CryptoBenchmarks [--filter text] [--quick] [--save file.csv] [--baseline file.csv] [--tolerance 0.10]
+ */
+public class CryptoBenchmarks {
+
+    /**
+     * A single operation to measure. Implementations return a value so the JIT cannot discard the work.
+     */
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Measured figures for one benchmark.
+     */
+    static class Result {
+        final String name;
+        final double opsPerSecond;
+        final double nanosPerOp;
+        final double bytesPerOp;
+        final double allocMBPerSecond;
+
+        Result(String name, double opsPerSecond, double nanosPerOp, double bytesPerOp, double allocMBPerSecond) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.allocMBPerSecond = allocMBPerSecond;
+        }
+    }
+
+    private static final Map<String, Operation> benchmarks = new LinkedHashMap<>();
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Sink for benchmark return values (keeps results observable to the JIT)
+    private static volatile int sink;
+
+    // Messages per call in the rsa.encryptBatch benchmarks; divide their ops/s by this to compare with rsa.encryptBytes
+    private static final int RSA_BATCH_SIZE = 64;
+
+    private static long warmupMillis = 1000;
+    private static long iterationMillis = 1000;
+    private static int iterations = 3;
+
+    public static void main(String[] args) throws Exception {
+        String filter = null;
+        Path save = null;
+        Path baseline = null;
+        double tolerance = 0.10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--filter": filter = args[++i]; break;
+                case "--save": save = Paths.get(args[++i]); break;
+                case "--baseline": baseline = Paths.get(args[++i]); break;
+                case "--tolerance": tolerance = Double.parseDouble(args[++i]); break;
+                case "--quick":
+                    warmupMillis = 200;
+                    iterationMillis = 300;
+                    iterations = 2;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        registerAES();
+        registerRSA();
+        registerEncryptionEngine();
+
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%-40s %14s %14s %14s %12s%n", "Benchmark", "ops/s", "avg us/op", "alloc B/op", "alloc MB/s");
+        for (Map.Entry<String, Operation> benchmark : benchmarks.entrySet()) {
+            if (filter != null && !benchmark.getKey().contains(filter)) {
+                continue;
+            }
+            Result r = measure(benchmark.getKey(), benchmark.getValue());
+            results.add(r);
+            System.out.printf("%-40s %14.1f %14.3f %14.0f %12.1f%n",
+                r.name, r.opsPerSecond, r.nanosPerOp / 1000.0, r.bytesPerOp, r.allocMBPerSecond);
+        }
+
+        if (save != null) {
+            saveResults(save, results);
+        }
+        if (baseline != null && !compareWithBaseline(baseline, results, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    // --- BENCHMARK REGISTRATION ---
+
+    static void register(String name, Operation operation) {
+        benchmarks.put(name, operation);
+    }
+
+    private static void registerAES() throws Exception {
+        SecretKey key = AdvancedAES.deriveKeyUsingPBKDF2("benchmarkPassword");
+        for (int size : new int[]{64, 1024, 16 * 1024, 1024 * 1024}) {
+            String plaintext = asciiText(size);
+            String encrypted = AdvancedAES.encrypt(plaintext, key);
+            register("aes.encrypt/" + size, () -> AdvancedAES.encrypt(plaintext, key));
+            register("aes.decrypt/" + size, () -> AdvancedAES.decrypt(encrypted, key));
+        }
+
+        byte[] salt = new byte[AdvancedAES.SALT_SIZE];
+        for (int iterationCount : new int[]{1000, 10000, 100000}) {
+            register("aes.pbkdf2/" + iterationCount,
+                () -> AdvancedAES.deriveKeyUsingPBKDF2("benchmarkPassword", salt, iterationCount));
+        }
+    }
+
+    private static void registerRSA() {
+        BigInteger message = new BigInteger(1, "Benchmark message for RSA".getBytes(StandardCharsets.UTF_8));
+        ParallelRsaKeyGenerator parallelGenerator = new ParallelRsaKeyGenerator();
+        for (int bits : new int[]{1024, 2048, 4096}) {
+            RsaKeyPair keyPair = AdvancedRSA.generateKeyPair(bits);
+            RsaPrivateKey privateKey = keyPair.getPrivateKey();
+            BigInteger e = privateKey.getPublicExponent();
+            BigInteger n = privateKey.getModulus();
+            BigInteger d = privateKey.getPrivateExponent();
+            BigInteger ciphertext = AdvancedRSA.encrypt(message, e, n);
+            register("rsa.generateKeys/" + bits, () -> AdvancedRSA.generateKeys(bits));
+            register("rsa.generateKeysParallel/" + bits, () -> parallelGenerator.generate(bits));
+            register("rsa.encrypt/" + bits, () -> AdvancedRSA.encrypt(message, e, n));
+            register("rsa.decrypt/" + bits, () -> AdvancedRSA.decrypt(ciphertext, d, n));
+            register("rsa.decryptCrt/" + bits, () -> AdvancedRSA.decrypt(ciphertext, privateKey));
+
+            // Byte API: one message per call vs. a batch of RSA_BATCH_SIZE messages per call
+            RsaPublicKey publicKey = keyPair.getPublicKey();
+            byte[] token = "Benchmark message for RSA".getBytes(StandardCharsets.UTF_8);
+            List<byte[]> tokens = Collections.nCopies(RSA_BATCH_SIZE, token);
+            register("rsa.encryptBytes/" + bits, () -> AdvancedRSA.encrypt(token, publicKey));
+            register("rsa.encryptBatch" + RSA_BATCH_SIZE + "/" + bits, () -> AdvancedRSA.encryptBatch(tokens, publicKey));
+
+            // Padding schemes, and the caller-buffer variants that skip the per-call output arrays
+            byte[] sealed = new byte[publicKey.getModulusBytes()];
+            byte[] opened = new byte[publicKey.getModulusBytes()];
+            byte[] oaepCiphertext = AdvancedRSA.encrypt(token, publicKey, RsaPadding.OAEP);
+            register("rsa.encryptOaep/" + bits, () -> AdvancedRSA.encrypt(token, publicKey, RsaPadding.OAEP));
+            register("rsa.decryptOaep/" + bits, () -> AdvancedRSA.decrypt(oaepCiphertext, privateKey, RsaPadding.OAEP));
+            register("rsa.encryptInto/" + bits,
+                () -> AdvancedRSA.encrypt(token, 0, token.length, publicKey, RsaPadding.PKCS1_V1_5, sealed, 0));
+            register("rsa.decryptInto/" + bits,
+                () -> AdvancedRSA.decrypt(sealed, 0, privateKey, RsaPadding.PKCS1_V1_5, opened, 0));
+
+            // Hardened path: blinding plus constant-time unpadding, against the plain byte path
+            RsaBlindedEngine blindedEngine = new RsaBlindedEngine(privateKey);
+            byte[] tokenCiphertext = AdvancedRSA.encrypt(token, publicKey);
+            register("rsa.decryptBytes/" + bits, () -> AdvancedRSA.decrypt(tokenCiphertext, privateKey));
+            register("rsa.decryptBlinded/" + bits, () -> blindedEngine.decrypt(tokenCiphertext));
+            register("rsa.signBlinded/" + bits, () -> blindedEngine.sign(token));
+
+            for (RsaSignatureScheme scheme : RsaSignatureScheme.values()) {
+                String suffix = scheme == RsaSignatureScheme.PSS ? "Pss/" : "/";
+                byte[] signature = AdvancedRSA.sign(token, privateKey, scheme);
+                RsaVerifier verifier = new RsaVerifier(publicKey, scheme);
+                register("rsa.sign" + suffix + bits, () -> AdvancedRSA.sign(token, privateKey, scheme));
+                register("rsa.verify" + suffix + bits, () -> verifier.verify(token, signature));
+            }
+        }
+    }
+
+    private static void registerEncryptionEngine() {
+        String input = asciiText(1000);
+        for (String mode : new String[]{"basic", "weighted", "chaotic"}) {
+            EncryptionEngine engine = new EncryptionEngine(new EncryptionConfig(true, mode, 321, false));
+            register("engine.encrypt/" + mode, () -> engine.encrypt(input, "benchmarkKey"));
+            FastEncryptionEngine fastEngine = new FastEncryptionEngine(new EncryptionConfig(true, mode, 321, false));
+            register("engine.encryptFast/" + mode, () -> fastEngine.encrypt(input, "benchmarkKey"));
+        }
+
+        // Same run with config.debug on: step messages and per-step timings
+        EncryptionEngine debugEngine = new EncryptionEngine(new EncryptionConfig(true, "weighted", 321, true), new Random(42));
+        register("engine.encrypt/weighted-debug", () -> debugEngine.encrypt(input, "benchmarkKey"));
+
+        // HMAC_DRBG value source, and the same engine answering repeated calls from its result cache
+        EncryptionConfig deterministic = new EncryptionConfig(true, "weighted", 321, false);
+        EncryptionEngine seededEngine = EncryptionEngine.deterministic(deterministic);
+        EncryptionEngine cachedEngine = EncryptionEngine.deterministic(deterministic, new EncryptionResultCache(16));
+        register("engine.encryptDeterministic/weighted", () -> seededEngine.encrypt(input, "benchmarkKey"));
+        register("engine.encryptCached/weighted", () -> cachedEngine.encrypt(input, "benchmarkKey"));
+
+        // Multi-MB input with a seeded Random, so the cost is the engine rather than SecureRandom
+        String largeInput = asciiText(1024 * 1024);
+        EncryptionConfig weighted = new EncryptionConfig(true, "weighted", 321, false);
+        EncryptionEngine largeEngine = new EncryptionEngine(weighted, new Random(42));
+        FastEncryptionEngine largeFastEngine = new FastEncryptionEngine(weighted, new Random(42));
+        register("engine.encrypt/weighted-1MB", () -> largeEngine.encrypt(largeInput, "benchmarkKey"));
+        register("engine.encryptFast/weighted-1MB", () -> largeFastEngine.encrypt(largeInput, "benchmarkKey"));
+
+        // Fork/join mode on the common pool; CounterRandom lets step 3 run in parallel too
+        FastEncryptionEngine parallelEngine = new FastEncryptionEngine(weighted, new CounterRandom(42));
+        register("engine.encryptParallel/weighted-1MB", () -> parallelEngine.encryptParallel(largeInput, "benchmarkKey"));
+    }
+
+    // --- MEASUREMENT ---
+
+    static Result measure(String name, Operation operation) throws Exception {
+        runFor(operation, warmupMillis);
+
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long ops = runFor(operation, iterationMillis);
+            totalNanos += System.nanoTime() - start;
+            totalBytes += threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+            totalOps += ops;
+        }
+
+        double seconds = totalNanos / 1e9;
+        return new Result(name, totalOps / seconds, (double) totalNanos / totalOps,
+            (double) totalBytes / totalOps, totalBytes / (1024.0 * 1024.0) / seconds);
+    }
+
+    // Runs the operation until the time budget is spent (at least once); returns the number of calls
+    private static long runFor(Operation operation, long millis) throws Exception {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        long ops = 0;
+        do {
+            Object value = operation.run();
+            sink += value == null ? 0 : value.hashCode();
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    // --- BASELINE HANDLING ---
+
+    private static void saveResults(Path file, List<Result> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("benchmark,ops_per_s,avg_ns_per_op,alloc_bytes_per_op,alloc_mb_per_s");
+        for (Result r : results) {
+            lines.add(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.1f,%.3f",
+                r.name, r.opsPerSecond, r.nanosPerOp, r.bytesPerOp, r.allocMBPerSecond));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        System.out.println("Results saved to " + file);
+    }
+
+    // Returns false if any benchmark lost more than the tolerated share of its baseline throughput
+    private static boolean compareWithBaseline(Path file, List<Result> results, double tolerance) throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] fields = line.split(",");
+            if (fields.length >= 2 && !fields[0].equals("benchmark")) {
+                baseline.put(fields[0], Double.parseDouble(fields[1]));
+            }
+        }
+
+        boolean passed = true;
+        System.out.println("\n=== Regression check (tolerance " + Math.round(tolerance * 100) + "%) ===");
+        for (Result r : results) {
+            Double reference = baseline.get(r.name);
+            if (reference == null) {
+                continue;
+            }
+            double change = (r.opsPerSecond - reference) / reference;
+            boolean regressed = change < -tolerance;
+            passed &= !regressed;
+            System.out.printf("%-40s %+7.1f%% %s%n", r.name, change * 100, regressed ? "REGRESSION" : "ok");
+        }
+        return passed;
+    }
+
+    static String asciiText(int length) {
+        String alphabet = "The quick brown fox jumps over the lazy dog. ";
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(alphabet, 0, Math.min(alphabet.length(), length - text.length()));
+        }
+        return text.toString();
+    }
+}
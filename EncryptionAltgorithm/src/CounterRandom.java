@@ -0,0 +1,63 @@
+import java.security.SecureRandom;
+import java.util.Random;
+
+// Counter-based Random: draw number k is a pure function of (seed, k).
+//
+// Sequential calls behave like any Random, so EncryptionEngine and FastEncryptionEngine can use it
+// unchanged, while StreamingEncryptionEngine can ask for draw k directly (nextInt(index, bound)) and
+// obtain the value the sequential engines saw at input position k without storing a list per position.
+// Each draw is a SplitMix64 hash of the seed and the counter; bounded draws use one 64-bit draw and no
+// rejection loop, so draw k always consumes exactly counter k. Not thread-safe.
+class CounterRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seedValue;
+    private long counter;
+
+    public CounterRandom() {
+        this(new SecureRandom().nextLong());
+    }
+
+    public CounterRandom(long seed) {
+        this.seedValue = seed;
+    }
+
+    // 1. Positional access
+    public int nextInt(long index, int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        return (int) (((mix(index) >>> 32) * bound) >>> 32);
+    }
+
+    // 2. Sequential access through the Random API
+    @Override
+    public int nextInt(int bound) {
+        return nextInt(counter++, bound);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (mix(counter++) >>> (64 - bits));
+    }
+
+    // Number of draws taken so far
+    public long getCounter() {
+        return counter;
+    }
+
+    // Skip draws that were taken positionally, so sequential use continues after them
+    public void advance(long draws) {
+        counter += draws;
+    }
+
+    private long mix(long index) {
+        long z = seedValue + (index + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,14 @@
+// Configuration class
+class EncryptionConfig {
+    boolean caseSensitive;
+    String mode;
+    int salt;
+    boolean debug;
+
+    public EncryptionConfig(boolean caseSensitive, String mode, int salt, boolean debug) {
+        this.caseSensitive = caseSensitive;
+        this.mode = mode;
+        this.salt = salt;
+        this.debug = debug;
+    }
+}
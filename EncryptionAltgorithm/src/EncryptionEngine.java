@@ -0,0 +1,223 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.*;
+
+// Encryption engine
+class EncryptionEngine {
+    private final EncryptionConfig config;
+    private final Random random;
+    private final boolean deterministic;
+    private final EncryptionResultCache cache;
+
+    public EncryptionEngine(EncryptionConfig config) {
+        this(config, new SecureRandom());
+    }
+
+    // A seeded Random makes results reproducible (e.g. to compare with FastEncryptionEngine)
+    public EncryptionEngine(EncryptionConfig config, Random random) {
+        this(config, random, false, null);
+    }
+
+    private EncryptionEngine(EncryptionConfig config, Random random, boolean deterministic, EncryptionResultCache cache) {
+        this.config = config;
+        this.random = random;
+        this.deterministic = deterministic;
+        this.cache = cache;
+    }
+
+    // Values drawn from HmacDrbgRandom.forKey(key, salt) on every call, so equal calls give equal results.
+    // Such an engine keeps no per-call state and is thread-safe.
+    public static EncryptionEngine deterministic(EncryptionConfig config) {
+        return new EncryptionEngine(config, null, true, null);
+    }
+
+    // Deterministic, with results looked up in (and added to) the given cache, which may be shared
+    public static EncryptionEngine deterministic(EncryptionConfig config, EncryptionResultCache cache) {
+        return new EncryptionEngine(config, null, true, cache);
+    }
+
+    public EncryptionResult encrypt(String input, String key) throws NoSuchAlgorithmException {
+        if (cache == null) {
+            return compute(input, key);
+        }
+        String cacheKey = EncryptionResultCache.cacheKey(config, input, key);
+        EncryptionResult cached = cache.get(cacheKey);
+        if (cached != null) {
+            if (config.debug) {
+                cached.log("Returned cached result; no steps ran.");
+            }
+            return cached;
+        }
+        EncryptionResult result = compute(input, key);
+        cache.put(cacheKey, result);
+        return result;
+    }
+
+    private EncryptionResult compute(String input, String key) throws NoSuchAlgorithmException {
+        EncryptionResult result = new EncryptionResult();
+        StepReporter reporter = StepReporter.forConfig(config, result);
+
+        // Step 1: Normalize
+        if (!config.caseSensitive) {
+            input = input.toLowerCase();
+            key = key.toLowerCase();
+        }
+        reporter.step(1, "Normalized input and key based on case sensitivity.");
+
+        // Step 2: Expand Key
+        List<Character> expandedKey = expandKey(key, input.length());
+        reporter.step(2, "Expanded key to match input length.");
+
+        // Step 3: Assign values
+        Random valueSource = deterministic ? HmacDrbgRandom.forKey(key, config.salt) : random;
+        Map<Character, List<Integer>> valueMap = new HashMap<>();
+        for (int i = 0; i < expandedKey.size(); i++) {
+            char ch = expandedKey.get(i);
+            int value = generateValue(valueSource, i, ch);
+            valueMap.computeIfAbsent(ch, k -> new ArrayList<>()).add(value);
+        }
+        reporter.step(3, "Assigned values to expanded key characters.");
+
+        // Step 4: Rotate values
+        rotateValues(valueMap, config.salt % 5);
+        reporter.step(4, "Rotated value lists.");
+
+        // Step 5: Compute weighted sum - the mode's strategy is resolved once, then one loop per mode
+        WeightingStrategy strategy = WeightingStrategies.forMode(config.mode);
+        int sum = 0;
+        if (strategy == null) {
+            // As before, an unknown mode only fails once a character matches the key
+            if (anyInKey(input, valueMap)) {
+                throw new IllegalArgumentException("Unsupported mode: " + config.mode);
+            }
+        } else if (strategy == WeightingStrategy.BASIC) {
+            sum = basicSum(input, valueMap);
+        } else if (strategy == WeightingStrategy.WEIGHTED) {
+            sum = weightedSum(input, valueMap, computeFrequencies(input));
+        } else if (strategy == WeightingStrategy.CHAOTIC) {
+            sum = chaoticSum(input, valueMap, config.salt);
+        } else {
+            sum = strategySum(input, valueMap, computeFrequencies(input), strategy, config.salt);
+        }
+        reporter.step(5, "Computed complex weighted sum: ", sum);
+
+        // Step 6: Add salt
+        sum += config.salt;
+
+        // Step 7: Final validations and hash
+        result.finalSum = sum;
+        result.checksum = computeSHA256(sum + key + config.mode);
+        result.validationCode = computeSHA256("VALIDATE" + key + sum).substring(0, 12);
+        reporter.step(7, "Generated checksum and validation code.");
+
+        return result;
+    }
+
+    // One loop per mode; only weighted and custom modes need the frequency map
+    private static int basicSum(String input, Map<Character, List<Integer>> valueMap) {
+        int sum = 0;
+        for (int i = 0; i < input.length(); i++) {
+            List<Integer> values = valueMap.get(input.charAt(i));
+            if (values != null) {
+                sum += values.get(i % values.size());
+            }
+        }
+        return sum;
+    }
+
+    private static int weightedSum(String input, Map<Character, List<Integer>> valueMap,
+                                   Map<Character, Integer> frequency) {
+        int sum = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char ch = input.charAt(i);
+            List<Integer> values = valueMap.get(ch);
+            if (values != null) {
+                sum += values.get(i % values.size()) + (i + 1) * frequency.getOrDefault(ch, 1);
+            }
+        }
+        return sum;
+    }
+
+    private static int chaoticSum(String input, Map<Character, List<Integer>> valueMap, int salt) {
+        int sum = 0;
+        for (int i = 0; i < input.length(); i++) {
+            List<Integer> values = valueMap.get(input.charAt(i));
+            if (values != null) {
+                sum += values.get(i % values.size()) * (i + 1) + salt % (i + 2);
+            }
+        }
+        return sum;
+    }
+
+    private static int strategySum(String input, Map<Character, List<Integer>> valueMap,
+                                   Map<Character, Integer> frequency, WeightingStrategy strategy, int salt) {
+        int sum = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char ch = input.charAt(i);
+            List<Integer> values = valueMap.get(ch);
+            if (values != null) {
+                sum += strategy.weigh(values.get(i % values.size()), i, frequency.getOrDefault(ch, 1), salt);
+            }
+        }
+        return sum;
+    }
+
+    private static boolean anyInKey(String input, Map<Character, List<Integer>> valueMap) {
+        for (int i = 0; i < input.length(); i++) {
+            if (valueMap.containsKey(input.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Character> expandKey(String baseKey, int targetLength) {
+        List<Character> expanded = new ArrayList<>();
+        while (expanded.size() < targetLength) {
+            for (char c : baseKey.toCharArray()) {
+                expanded.add(c);
+                if (expanded.size() >= targetLength) break;
+            }
+        }
+        return expanded;
+    }
+
+    private void rotateValues(Map<Character, List<Integer>> map, int steps) {
+        for (Map.Entry<Character, List<Integer>> entry : map.entrySet()) {
+            List<Integer> list = entry.getValue();
+            Collections.rotate(list, steps % list.size());
+        }
+    }
+
+    private int generateValue(Random valueSource, int position, char ch) {
+        int base = valueSource.nextInt(100) + 1;
+        return base * (ch % 5 + 1) + (position + 1);
+    }
+
+    private Map<Character, Integer> computeFrequencies(String input) {
+        Map<Character, Integer> freqMap = new HashMap<>();
+        for (char c : input.toCharArray()) {
+            freqMap.put(c, freqMap.getOrDefault(c, 0) + 1);
+        }
+        return freqMap;
+    }
+
+    static String computeSHA256(String input) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(input.getBytes());
+        return toHex(hash);
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // Lowercase hex, two table lookups per byte
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >>> 4) & 0x0F];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+}
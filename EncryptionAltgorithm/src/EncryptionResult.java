@@ -0,0 +1,52 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Result class
+class EncryptionResult {
+    static final int STEPS = 7;
+
+    int finalSum;
+    String checksum;
+    String validationCode;
+    List<String> logSteps = new ArrayList<>();
+    long[] stepNanos; // nanoseconds per step, index step - 1; null unless the run was timed
+
+    public void log(String step) {
+        logSteps.add(step);
+    }
+
+    void log(int step, String message, long nanos) {
+        logSteps.add(message);
+        if (stepNanos == null) {
+            stepNanos = new long[STEPS];
+        }
+        stepNanos[step - 1] += nanos;
+    }
+
+    // Independent copy, so a cached result cannot be changed through the instance handed out
+    EncryptionResult copy() {
+        EncryptionResult copy = new EncryptionResult();
+        copy.finalSum = finalSum;
+        copy.checksum = checksum;
+        copy.validationCode = validationCode;
+        copy.logSteps.addAll(logSteps);
+        copy.stepNanos = stepNanos == null ? null : stepNanos.clone();
+        return copy;
+    }
+
+    public void displayReport() {
+        System.out.println("\n=== CRYPTOGRAPHIC REPORT ===");
+        logSteps.forEach(System.out::println);
+        if (stepNanos != null) {
+            for (int step = 1; step <= STEPS; step++) {
+                if (stepNanos[step - 1] > 0) {
+                    System.out.printf("Step %d: %.3f ms%n", step, stepNanos[step - 1] / 1e6);
+                }
+            }
+        }
+        System.out.println("Final sum: " + finalSum);
+        System.out.println("Validation code: " + validationCode);
+        System.out.println("Checksum (SHA-256): " + checksum);
+        System.out.println("=============================");
+    }
+}
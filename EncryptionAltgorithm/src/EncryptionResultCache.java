@@ -0,0 +1,150 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded LRU cache of EncryptionResults for deterministic engines (EncryptionEngine.deterministic).
+//
+// Entries are keyed by a SHA-256 digest of (case sensitivity, salt, mode, key, input), so the cache
+// holds 44-character keys instead of the inputs themselves. Each field is length-prefixed and strings
+// are hashed as raw UTF-16 code units, so distinct calls cannot share a digest by concatenation or by
+// unpaired surrogates. Results are copied in and out, and the cache can be shared between engines and
+// threads. Only the sum, checksum and validation code are kept: the step log and timings describe the
+// call that filled the entry, so they are dropped rather than replayed on a hit. Only use the cache with
+// deterministic engines: caching a SecureRandom result would make every later call for the same record
+// return that one random draw.
+public class EncryptionResultCache {
+
+    private final int maxEntries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final LinkedHashMap<String, EncryptionResult> entries;
+
+    public EncryptionResultCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, EncryptionResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EncryptionResult> eldest) {
+                return size() > EncryptionResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static void main(String[] args) throws NoSuchAlgorithmException {
+        // A repetitive workload: 20000 calls over 500 distinct records, most traffic on a few of them
+        Random workload = new Random(5);
+        String[] records = new String[500];
+        for (int i = 0; i < records.length; i++) {
+            StringBuilder record = new StringBuilder();
+            for (int j = 0; j < 1000; j++) {
+                record.append((char) ('a' + workload.nextInt(26)));
+            }
+            records[i] = record.toString();
+        }
+        int[] calls = new int[20000];
+        for (int i = 0; i < calls.length; i++) {
+            double skew = workload.nextDouble();
+            calls[i] = (int) (skew * skew * skew * records.length);
+        }
+
+        EncryptionConfig config = new EncryptionConfig(false, "weighted", 321, false);
+        EncryptionEngine plain = EncryptionEngine.deterministic(config);
+        EncryptionResultCache cache = new EncryptionResultCache(128);
+        EncryptionEngine cached = EncryptionEngine.deterministic(config, cache);
+        System.out.println("Deterministic: " + (plain.encrypt(records[0], "pipelineKey").finalSum
+            == EncryptionEngine.deterministic(config).encrypt(records[0], "pipelineKey").finalSum));
+
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            for (int call : calls) {
+                plain.encrypt(records[call], "pipelineKey");
+            }
+            long plainNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int call : calls) {
+                cached.encrypt(records[call], "pipelineKey");
+            }
+            long cachedNanos = System.nanoTime() - start;
+            System.out.printf("Round %d: uncached %.0f calls/s | cached %.0f calls/s%n", round,
+                calls.length / (plainNanos / 1e9), calls.length / (cachedNanos / 1e9));
+        }
+        System.out.printf("Cache: %d entries, %d hits, %d misses (%.1f%% hit rate)%n", cache.size(), cache.getHits(),
+            cache.getMisses(), cache.getHits() * 100.0 / (cache.getHits() + cache.getMisses()));
+    }
+
+    // 1. Lookup and insert; counted as a hit or a miss
+    public EncryptionResult get(String cacheKey) {
+        EncryptionResult result;
+        synchronized (this) {
+            result = entries.get(cacheKey);
+        }
+        if (result == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return result.copy();
+    }
+
+    public void put(String cacheKey, EncryptionResult result) {
+        EncryptionResult copy = result.copy();
+        copy.logSteps.clear();
+        copy.stepNanos = null;
+        synchronized (this) {
+            entries.put(cacheKey, copy);
+        }
+    }
+
+    // 2. Digest of everything the result depends on
+    static String cacheKey(EncryptionConfig config, String input, String key) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] chunk = new byte[4096];
+        digest.update((byte) (config.caseSensitive ? 1 : 0));
+        updateInt(digest, config.salt);
+        update(digest, config.mode, chunk);
+        update(digest, key, chunk);
+        update(digest, input, chunk);
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static void update(MessageDigest digest, String value, byte[] chunk) {
+        updateInt(digest, value.length());
+        int filled = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char ch = value.charAt(i);
+            chunk[filled++] = (byte) (ch >>> 8);
+            chunk[filled++] = (byte) ch;
+            if (filled == chunk.length) {
+                digest.update(chunk, 0, filled);
+                filled = 0;
+            }
+        }
+        digest.update(chunk, 0, filled);
+    }
+
+    private static void updateInt(MessageDigest digest, int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+}
@@ -0,0 +1,462 @@
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+// Allocation-free variant of EncryptionEngine.
+//
+// Produces exactly the same EncryptionResult as EncryptionEngine for the same config, input, key and
+// random sequence, but replaces the expanded List<Character>, the Map<Character, List<Integer>> and the
+// boxed frequency map with primitive tables:
+//   - slotOf maps a UTF-16 code unit to a dense slot number for each distinct key character (-1 otherwise)
+//   - all value lists live back to back in one int[], slot s at [slotStart[s], slotStart[s] + slotCount[s])
+//   - rotation is applied on lookup as an index shift instead of moving the list elements
+// The tables are kept between calls, so after the first call on inputs of similar size encrypt() only
+// allocates the result object and its strings. Like EncryptionEngine, an instance is not thread-safe.
+//
+// encryptParallel splits the frequency count and the step 5 sum into ranges on a ForkJoinPool. Partial
+// sums are combined with int addition, which wraps and is associative, so finalSum is identical to the
+// sequential path however the input is split. With a CounterRandom the step 3 values are also generated
+// in parallel, since draw i is then a function of i alone; any other Random is drawn sequentially.
+class FastEncryptionEngine {
+
+    private static final int ALPHABET = 65536;
+    static final int PARALLEL_THRESHOLD = 64 * 1024; // characters per fork/join leaf
+
+    private final EncryptionConfig config;
+    private final Random random;
+
+    // Reusable scratch tables; slotOf is reset to -1 after every call
+    private final int[] slotOf = new int[ALPHABET];
+    private int[] keySlots = new int[0];
+    private int[] keyRank = new int[0]; // rank of a key position among the positions of its character
+    private char[] slotChar = new char[0];
+    private int[] slotKeyCount = new int[0];
+    private int[] slotCount = new int[0];
+    private int[] slotStart = new int[0];
+    private int[] slotRotation = new int[0];
+    private int[] slotFrequency = new int[0];
+    private int[] values = new int[0];
+
+    public FastEncryptionEngine(EncryptionConfig config) {
+        this(config, new SecureRandom());
+    }
+
+    public FastEncryptionEngine(EncryptionConfig config, Random random) {
+        this.config = config;
+        this.random = random;
+        Arrays.fill(slotOf, -1);
+    }
+
+    public static void main(String[] args) throws NoSuchAlgorithmException {
+        // Same seed, same results
+        Random inputs = new Random(1);
+        boolean identical = true;
+        for (String mode : new String[]{"basic", "weighted", "chaotic"}) {
+            for (int trial = 0; trial < 200; trial++) {
+                String input = randomText(inputs, inputs.nextInt(300));
+                String key = randomText(inputs, 1 + inputs.nextInt(20));
+                EncryptionConfig config = new EncryptionConfig(inputs.nextBoolean(), mode, inputs.nextInt(600) - 50, false);
+                long seed = inputs.nextLong();
+                EncryptionResult expected = new EncryptionEngine(config, new Random(seed)).encrypt(input, key);
+                EncryptionResult actual = new FastEncryptionEngine(config, new Random(seed)).encrypt(input, key);
+                identical &= expected.finalSum == actual.finalSum && expected.checksum.equals(actual.checksum)
+                    && expected.validationCode.equals(actual.validationCode) && expected.logSteps.equals(actual.logSteps);
+            }
+        }
+        System.out.println("Results identical to EncryptionEngine: " + identical);
+
+        // Throughput on a multi-MB input
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        String text = randomText(inputs, megabytes * 1024 * 1024);
+        String key = "benchmarkKey";
+        EncryptionConfig config = new EncryptionConfig(true, "weighted", 321, false);
+        EncryptionEngine original = new EncryptionEngine(config, new Random(7));
+        FastEncryptionEngine fast = new FastEncryptionEngine(config, new Random(7));
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            original.encrypt(text, key);
+            long originalNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            fast.encrypt(text, key);
+            long fastNanos = System.nanoTime() - start;
+            System.out.printf("Round %d: EncryptionEngine %.1f MB/s | FastEncryptionEngine %.1f MB/s%n", round,
+                megabytes / (originalNanos / 1e9), megabytes / (fastNanos / 1e9));
+        }
+
+        // Parallel mode: same finalSum, throughput per core count
+        boolean sameSum = true;
+        for (String mode : new String[]{"basic", "weighted", "chaotic"}) {
+            EncryptionConfig modeConfig = new EncryptionConfig(false, mode, 321, false);
+            int sequential = new FastEncryptionEngine(modeConfig, new CounterRandom(9)).encrypt(text, key).finalSum;
+            int parallel = new FastEncryptionEngine(modeConfig, new CounterRandom(9)).encryptParallel(text, key).finalSum;
+            sameSum &= sequential == parallel;
+        }
+        System.out.println("Parallel finalSum identical: " + sameSum);
+        for (int cores = 1; cores <= Runtime.getRuntime().availableProcessors(); cores *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            FastEncryptionEngine parallel = new FastEncryptionEngine(config, new CounterRandom(7));
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                parallel.encryptParallel(text, key, pool);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            System.out.printf("Parallel, %d core(s): %.1f MB/s%n", cores, megabytes / (best / 1e9));
+        }
+    }
+
+    public EncryptionResult encrypt(String input, String key) throws NoSuchAlgorithmException {
+        return encrypt(input, key, null);
+    }
+
+    // Parallel mode on the common pool, or on a given pool
+    public EncryptionResult encryptParallel(String input, String key) throws NoSuchAlgorithmException {
+        return encrypt(input, key, ForkJoinPool.commonPool());
+    }
+
+    public EncryptionResult encryptParallel(String input, String key, ForkJoinPool pool)
+            throws NoSuchAlgorithmException {
+        return encrypt(input, key, pool);
+    }
+
+    private EncryptionResult encrypt(String input, String key, ForkJoinPool pool) throws NoSuchAlgorithmException {
+        EncryptionResult result = new EncryptionResult();
+        StepReporter reporter = StepReporter.forConfig(config, result);
+
+        // Step 1: Normalize
+        if (!config.caseSensitive) {
+            input = input.toLowerCase();
+            key = key.toLowerCase();
+        }
+        reporter.step(1, "Normalized input and key based on case sensitivity.");
+
+        int length = input.length();
+        int keyLength = key.length();
+        if (length > 0 && keyLength == 0) {
+            throw new IllegalArgumentException("Key must not be empty"); // EncryptionEngine never returns here
+        }
+
+        boolean parallel = pool != null && length >= 2 * PARALLEL_THRESHOLD;
+        int slots = 0;
+        int sum;
+        try {
+            // Step 2: Expand Key - only the key positions in use, each mapped to its character's slot
+            int usedKeyLength = Math.min(keyLength, length);
+            ensureKeyCapacity(usedKeyLength);
+            for (int j = 0; j < usedKeyLength; j++) {
+                char ch = key.charAt(j);
+                int slot = slotOf[ch];
+                if (slot < 0) {
+                    slot = slots++;
+                    slotOf[ch] = slot;
+                    slotChar[slot] = ch;
+                    slotKeyCount[slot] = 0;
+                    slotCount[slot] = 0;
+                    slotFrequency[slot] = 0;
+                }
+                keySlots[j] = slot;
+                keyRank[j] = slotKeyCount[slot]++;
+            }
+            reporter.step(2, "Expanded key to match input length.");
+
+            // Step 3: Assign values - size each slot's list, then fill them in position order
+            if (usedKeyLength > 0) {
+                int fullCycles = length / keyLength;
+                int remainder = length % keyLength;
+                for (int j = 0; j < usedKeyLength; j++) {
+                    slotCount[keySlots[j]] += fullCycles + (j < remainder ? 1 : 0);
+                }
+            }
+            if (values.length < length) {
+                values = new int[length];
+            }
+            int offset = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                slotStart[slot] = offset;
+                slotRotation[slot] = offset; // used as the fill pointer until step 4
+                offset += slotCount[slot];
+            }
+            if (parallel && random instanceof CounterRandom) {
+                CounterRandom counterRandom = (CounterRandom) random;
+                pool.invoke(new FillTask(counterRandom, counterRandom.getCounter(), keyLength, 0, length));
+                counterRandom.advance(length);
+            } else {
+                for (int i = 0, j = 0; i < length; i++) {
+                    int slot = keySlots[j];
+                    int base = random.nextInt(100) + 1;
+                    values[slotRotation[slot]++] = base * (slotChar[slot] % 5 + 1) + (i + 1);
+                    if (++j == keyLength) {
+                        j = 0;
+                    }
+                }
+            }
+            reporter.step(3, "Assigned values to expanded key characters.");
+
+            // Step 4: Rotate values - store each slot's rotation as in Collections.rotate instead of moving elements
+            int steps = config.salt % 5;
+            for (int slot = 0; slot < slots; slot++) {
+                int distance = steps % slotCount[slot];
+                slotRotation[slot] = distance < 0 ? distance + slotCount[slot] : distance;
+            }
+            reporter.step(4, "Rotated value lists.");
+
+            // Step 5: Compute weighted sum, with one loop per mode
+            if (parallel) {
+                System.arraycopy(pool.invoke(new FrequencyTask(input, slots, 0, length)), 0, slotFrequency, 0, slots);
+            } else {
+                countFrequencies(input, 0, length, slotFrequency);
+            }
+            WeightingStrategy strategy = WeightingStrategies.forMode(config.mode);
+            if (strategy == null) {
+                // EncryptionEngine only notices the mode once a character matches the key
+                if (anyInKey(input)) {
+                    throw new IllegalArgumentException("Unsupported mode: " + config.mode);
+                }
+                sum = 0;
+            } else if (parallel) {
+                sum = pool.invoke(new SumTask(input, strategy, 0, length));
+            } else {
+                sum = rangeSum(input, strategy, 0, length);
+            }
+            reporter.step(5, "Computed complex weighted sum: ", sum);
+        } finally {
+            for (int slot = 0; slot < slots; slot++) {
+                slotOf[slotChar[slot]] = -1;
+            }
+        }
+
+        // Step 6: Add salt
+        sum += config.salt;
+
+        // Step 7: Final validations and hash
+        result.finalSum = sum;
+        result.checksum = EncryptionEngine.computeSHA256(sum + key + config.mode);
+        result.validationCode = EncryptionEngine.computeSHA256("VALIDATE" + key + sum).substring(0, 12);
+        reporter.step(7, "Generated checksum and validation code.");
+
+        return result;
+    }
+
+    // Sum of step 5 over input positions [from, to)
+    private int rangeSum(String input, WeightingStrategy strategy, int from, int to) {
+        if (strategy == WeightingStrategy.BASIC) {
+            return basicSum(input, from, to);
+        } else if (strategy == WeightingStrategy.WEIGHTED) {
+            return weightedSum(input, from, to);
+        } else if (strategy == WeightingStrategy.CHAOTIC) {
+            return chaoticSum(input, config.salt, from, to);
+        }
+        return strategySum(input, strategy, config.salt, from, to);
+    }
+
+    private int basicSum(String input, int from, int to) {
+        int sum = 0;
+        for (int i = from; i < to; i++) {
+            int slot = slotOf[input.charAt(i)];
+            if (slot >= 0) {
+                sum += value(slot, i);
+            }
+        }
+        return sum;
+    }
+
+    private int weightedSum(String input, int from, int to) {
+        int sum = 0;
+        for (int i = from; i < to; i++) {
+            int slot = slotOf[input.charAt(i)];
+            if (slot >= 0) {
+                sum += value(slot, i) + (i + 1) * slotFrequency[slot];
+            }
+        }
+        return sum;
+    }
+
+    private int chaoticSum(String input, int salt, int from, int to) {
+        int sum = 0;
+        for (int i = from; i < to; i++) {
+            int slot = slotOf[input.charAt(i)];
+            if (slot >= 0) {
+                sum += value(slot, i) * (i + 1) + salt % (i + 2);
+            }
+        }
+        return sum;
+    }
+
+    // Registered custom modes
+    private int strategySum(String input, WeightingStrategy strategy, int salt, int from, int to) {
+        int sum = 0;
+        for (int i = from; i < to; i++) {
+            int slot = slotOf[input.charAt(i)];
+            if (slot >= 0) {
+                sum += strategy.weigh(value(slot, i), i, slotFrequency[slot], salt);
+            }
+        }
+        return sum;
+    }
+
+    // Element i % size of the slot's list after rotating it right by slotRotation[slot]
+    private int value(int slot, int position) {
+        int size = slotCount[slot];
+        int index = position % size - slotRotation[slot];
+        if (index < 0) {
+            index += size;
+        }
+        return values[slotStart[slot] + index];
+    }
+
+    private void countFrequencies(String input, int from, int to, int[] frequency) {
+        for (int i = from; i < to; i++) {
+            int slot = slotOf[input.charAt(i)];
+            if (slot >= 0) {
+                frequency[slot]++;
+            }
+        }
+    }
+
+    // Step 3 for positions [from, to) when draw i depends on i only: position i of key position j in
+    // cycle c goes to element c * (positions of its character in the key) + rank of j of its slot's list
+    private void fillValues(CounterRandom counterRandom, long firstDraw, int keyLength, int from, int to) {
+        int j = from % keyLength;
+        int cycle = from / keyLength;
+        for (int i = from; i < to; i++) {
+            int slot = keySlots[j];
+            int base = counterRandom.nextInt(firstDraw + i, 100) + 1;
+            values[slotStart[slot] + cycle * slotKeyCount[slot] + keyRank[j]] = base * (slotChar[slot] % 5 + 1) + (i + 1);
+            if (++j == keyLength) {
+                j = 0;
+                cycle++;
+            }
+        }
+    }
+
+    private boolean anyInKey(String input) {
+        for (int i = 0, length = input.length(); i < length; i++) {
+            if (slotOf[input.charAt(i)] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A key of n characters has at most n distinct characters, so every slot table needs n entries
+    private void ensureKeyCapacity(int keyLength) {
+        if (keySlots.length < keyLength) {
+            keySlots = new int[keyLength];
+            keyRank = new int[keyLength];
+            slotChar = new char[keyLength];
+            slotKeyCount = new int[keyLength];
+            slotCount = new int[keyLength];
+            slotStart = new int[keyLength];
+            slotRotation = new int[keyLength];
+            slotFrequency = new int[keyLength];
+        }
+    }
+
+    // Fork/join tasks: halve the range until it is at most PARALLEL_THRESHOLD characters
+    private class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CounterRandom counterRandom;
+        private final long firstDraw;
+        private final int keyLength;
+        private final int from;
+        private final int to;
+
+        FillTask(CounterRandom counterRandom, long firstDraw, int keyLength, int from, int to) {
+            this.counterRandom = counterRandom;
+            this.firstDraw = firstDraw;
+            this.keyLength = keyLength;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                fillValues(counterRandom, firstDraw, keyLength, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FillTask(counterRandom, firstDraw, keyLength, from, middle),
+                new FillTask(counterRandom, firstDraw, keyLength, middle, to));
+        }
+    }
+
+    private class FrequencyTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final String input;
+        private final int slots;
+        private final int from;
+        private final int to;
+
+        FrequencyTask(String input, int slots, int from, int to) {
+            this.input = input;
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                int[] frequency = new int[slots];
+                countFrequencies(input, from, to, frequency);
+                return frequency;
+            }
+            int middle = (from + to) >>> 1;
+            FrequencyTask right = new FrequencyTask(input, slots, middle, to);
+            right.fork();
+            int[] frequency = new FrequencyTask(input, slots, from, middle).compute();
+            int[] rightFrequency = right.join();
+            for (int slot = 0; slot < slots; slot++) {
+                frequency[slot] += rightFrequency[slot];
+            }
+            return frequency;
+        }
+    }
+
+    private class SumTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final String input;
+        private final WeightingStrategy strategy;
+        private final int from;
+        private final int to;
+
+        SumTask(String input, WeightingStrategy strategy, int from, int to) {
+            this.input = input;
+            this.strategy = strategy;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return rangeSum(input, strategy, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SumTask right = new SumTask(input, strategy, middle, to);
+            right.fork();
+            int left = new SumTask(input, strategy, from, middle).compute();
+            return left + right.join();
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            // Mostly ASCII letters, some upper case and a few characters beyond Latin-1
+            int pick = random.nextInt(100);
+            text[i] = pick < 80 ? (char) ('a' + random.nextInt(26))
+                : pick < 95 ? (char) ('A' + random.nextInt(26)) : (char) (0x0400 + random.nextInt(64));
+        }
+        return new String(text);
+    }
+}
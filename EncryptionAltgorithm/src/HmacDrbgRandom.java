@@ -0,0 +1,139 @@
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Deterministic Random backed by HMAC_DRBG with HMAC-SHA256 (NIST SP 800-90A, section 10.1.2).
+//
+// The same seed material always yields the same sequence, so an EncryptionEngine drawing its values from
+// forKey(key, salt) returns the same result for the same (input, key, mode, salt) and can be cached. The
+// output is a keyed PRF of the seed: without the key the values cannot be predicted, unlike a
+// java.util.Random seeded with a hash of it. Output is generated in BLOCK_SIZE-byte requests (well under
+// the 64 KB per-request limit) and served from that buffer. There is no reseeding or prediction
+// resistance; this is a reproducible value source, not a replacement for SecureRandom. Not thread-safe.
+// Random is Serializable, but DRBG state (K and V) must not be persisted, so serialization is refused.
+class HmacDrbgRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int OUT_LENGTH = 32;
+    private static final int BLOCK_SIZE = 1024;
+
+    private final Mac mac;
+    private byte[] k = new byte[OUT_LENGTH];
+    private final byte[] v = new byte[OUT_LENGTH];
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private int position = BLOCK_SIZE;
+
+    // 1. Instantiate: K = 0x00.., V = 0x01.., then Update(seed material)
+    public HmacDrbgRandom(byte[] seedMaterial) {
+        try {
+            mac = Mac.getInstance(HMAC);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+        Arrays.fill(v, (byte) 0x01);
+        rekey();
+        update(seedMaterial);
+    }
+
+    // Seed material is the UTF-8 key followed by the big-endian salt
+    public static HmacDrbgRandom forKey(String key, int salt) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] seedMaterial = Arrays.copyOf(keyBytes, keyBytes.length + 4);
+        for (int i = 0; i < 4; i++) {
+            seedMaterial[keyBytes.length + i] = (byte) (salt >>> (24 - 8 * i));
+        }
+        return new HmacDrbgRandom(seedMaterial);
+    }
+
+    // 2. Random API on top of the generated bytes
+    @Override
+    protected int next(int bits) {
+        if (position > BLOCK_SIZE - 4) {
+            generate(buffer);
+            position = 0;
+        }
+        int word = (buffer[position] & 0xFF) << 24 | (buffer[position + 1] & 0xFF) << 16
+            | (buffer[position + 2] & 0xFF) << 8 | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return word >>> (32 - bits);
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (position == BLOCK_SIZE) {
+                generate(buffer);
+                position = 0;
+            }
+            bytes[i] = buffer[position++];
+        }
+    }
+
+    // Seeding is fixed at construction; Random's constructor calls this before the fields exist
+    @Override
+    public void setSeed(long seed) {
+        if (mac != null) {
+            throw new UnsupportedOperationException("HmacDrbgRandom is seeded at construction");
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        throw new NotSerializableException("HmacDrbgRandom state is not serializable");
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException {
+        throw new NotSerializableException("HmacDrbgRandom state is not serializable");
+    }
+
+    // 3. Generate: V = HMAC(K, V) per output block, then Update() with no input
+    private void generate(byte[] out) {
+        for (int offset = 0; offset < out.length; offset += OUT_LENGTH) {
+            hmacInto(v);
+            System.arraycopy(v, 0, out, offset, Math.min(OUT_LENGTH, out.length - offset));
+        }
+        update(null);
+    }
+
+    // Update: K = HMAC(K, V || 0x00 || data), V = HMAC(K, V), and again with 0x01 if there is data
+    private void update(byte[] data) {
+        for (byte round = 0; round <= 1; round++) {
+            mac.update(v);
+            mac.update(round);
+            if (data != null) {
+                mac.update(data);
+            }
+            k = mac.doFinal();
+            rekey();
+            hmacInto(v);
+            if (data == null || data.length == 0) {
+                return;
+            }
+        }
+    }
+
+    private void hmacInto(byte[] value) {
+        mac.update(value);
+        try {
+            mac.doFinal(value, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void rekey() {
+        try {
+            mac.init(new SecretKeySpec(k, HMAC));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
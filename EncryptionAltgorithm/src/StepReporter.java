@@ -0,0 +1,41 @@
+// Receives each pipeline step as it completes. Engines report through NONE unless config.debug is set,
+// so production runs build no log messages and read no clock.
+interface StepReporter {
+    StepReporter NONE = new StepReporter() {
+        @Override
+        public void step(int step, String message) {
+        }
+
+        @Override
+        public void step(int step, String message, int detail) {
+        }
+    };
+
+    void step(int step, String message);
+
+    // The message is only concatenated with detail when the step is actually recorded
+    void step(int step, String message, int detail);
+
+    // Records each step's message and its nanoseconds since the previous step into the result
+    static StepReporter timing(EncryptionResult result) {
+        return new StepReporter() {
+            private long mark = System.nanoTime();
+
+            @Override
+            public void step(int step, String message) {
+                long now = System.nanoTime();
+                result.log(step, message, now - mark);
+                mark = now;
+            }
+
+            @Override
+            public void step(int step, String message, int detail) {
+                step(step, message + detail);
+            }
+        };
+    }
+
+    static StepReporter forConfig(EncryptionConfig config, EncryptionResult result) {
+        return config.debug ? timing(result) : NONE;
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Two-pass streaming variant of EncryptionEngine for inputs too large to hold as a String.
+//
+// Pass 1 reads the input once to count its characters and build a 65536-entry frequency histogram.
+// Pass 2 reads it again and accumulates the weighted sum. Instead of materialising the per-character
+// value lists, the value at list index idx of a key character is recomputed on demand: it belongs to the
+// idx-th input position p whose expanded-key character is that character, and its random base is draw p
+// of a CounterRandom. Memory is O(alphabet + key length) regardless of input size.
+//
+// Given a fresh CounterRandom with the same seed, the result equals EncryptionEngine's and FastEncryptionEngine's.
+// Without case sensitivity each character is lowered with Character.toLowerCase, which matches
+// String.toLowerCase except for its few context- and locale-dependent mappings (e.g. final sigma,
+// Turkish dotted I).
+//
+// Positions and character counts are longs, so inputs beyond 2^31 characters are handled: position terms
+// are computed in long and, like every contribution, folded into the int sum with wrapping addition
+// (chaotic's salt % (position + 2) is taken in long before folding). Below 2^31 characters this is exactly
+// the in-memory engines' int arithmetic. Custom WeightingStrategy modes take int positions, so they are
+// limited to Integer.MAX_VALUE characters and longer inputs are rejected.
+class StreamingEncryptionEngine {
+
+    // Opens the input; called once per pass
+    interface ReaderSource {
+        Reader open() throws IOException;
+    }
+
+    private static final int ALPHABET = 65536;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EncryptionConfig config;
+    private final CounterRandom random;
+
+    public StreamingEncryptionEngine(EncryptionConfig config) {
+        this(config, new CounterRandom());
+    }
+
+    public StreamingEncryptionEngine(EncryptionConfig config, CounterRandom random) {
+        this.config = config;
+        this.random = random;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Same seed, same results as the in-memory engine
+        Random inputs = new Random(1);
+        boolean identical = true;
+        for (String mode : new String[]{"basic", "weighted", "chaotic"}) {
+            for (int trial = 0; trial < 200; trial++) {
+                String input = randomText(inputs, inputs.nextInt(300));
+                String key = randomText(inputs, 1 + inputs.nextInt(20));
+                EncryptionConfig config = new EncryptionConfig(inputs.nextBoolean(), mode, inputs.nextInt(600) - 50, false);
+                long seed = inputs.nextLong();
+                EncryptionResult expected = new EncryptionEngine(config, new CounterRandom(seed)).encrypt(input, key);
+                EncryptionResult actual = new StreamingEncryptionEngine(config, new CounterRandom(seed)).encrypt(input, key);
+                identical &= expected.finalSum == actual.finalSum && expected.checksum.equals(actual.checksum);
+            }
+        }
+        System.out.println("Results identical to EncryptionEngine: " + identical);
+
+        // Stream a file much larger than the buffers
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        Path file = Files.createTempFile("streaming-engine", ".txt");
+        try {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                char[] chunk = randomText(inputs, 1024 * 1024).toCharArray();
+                for (int i = 0; i < megabytes; i++) {
+                    out.write(chunk);
+                }
+            }
+            StreamingEncryptionEngine engine =
+                new StreamingEncryptionEngine(new EncryptionConfig(false, "weighted", 321, false), new CounterRandom(7));
+            Runtime runtime = Runtime.getRuntime();
+            long start = System.nanoTime();
+            EncryptionResult result = engine.encrypt(file, StandardCharsets.UTF_8, "benchmarkKey");
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d MB streamed twice in %.2f s (%.1f MB/s per pass), heap in use %d MB, sum %d%n",
+                megabytes, seconds, 2 * megabytes / seconds, (runtime.totalMemory() - runtime.freeMemory()) >> 20,
+                result.finalSum);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // 1. Entry points
+    public EncryptionResult encrypt(String input, String key) throws IOException, NoSuchAlgorithmException {
+        return encrypt(() -> new StringReader(input), key);
+    }
+
+    // Reads the file through a FileChannel, once per pass
+    public EncryptionResult encrypt(Path file, Charset charset, String key) throws IOException, NoSuchAlgorithmException {
+        return encrypt(() -> Channels.newReader(FileChannel.open(file, StandardOpenOption.READ), charset.newDecoder(),
+            BUFFER_SIZE), key);
+    }
+
+    public EncryptionResult encrypt(ReaderSource source, String key) throws IOException, NoSuchAlgorithmException {
+        EncryptionResult result = new EncryptionResult();
+        StepReporter reporter = StepReporter.forConfig(config, result);
+        char[] buffer = new char[BUFFER_SIZE];
+
+        // Step 1: Normalize (the input is lowered character by character while streaming)
+        if (!config.caseSensitive) {
+            key = key.toLowerCase();
+        }
+        reporter.step(1, "Normalized input and key based on case sensitivity.");
+
+        // Pass 1: length and frequency histogram
+        long[] histogram = new long[ALPHABET];
+        long length = 0;
+        try (Reader in = source.open()) {
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                for (int i = 0; i < read; i++) {
+                    histogram[normalize(buffer[i])]++;
+                }
+                length += read;
+            }
+        }
+        int keyLength = key.length();
+        if (length > 0 && keyLength == 0) {
+            throw new IllegalArgumentException("Key must not be empty");
+        }
+        WeightingStrategy strategy = WeightingStrategies.forMode(config.mode);
+        if (isCustom(strategy) && length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Custom mode " + config.mode + " supports at most "
+                + Integer.MAX_VALUE + " characters; input has " + length);
+        }
+
+        // Step 2: Expand Key - one slot per distinct key character, with the key positions that hold it
+        int usedKeyLength = (int) Math.min(keyLength, length);
+        int[] slotOf = new int[ALPHABET];
+        Arrays.fill(slotOf, -1);
+        char[] slotChar = new char[usedKeyLength];
+        int[] slotKeyCount = new int[usedKeyLength];
+        int slots = 0;
+        for (int j = 0; j < usedKeyLength; j++) {
+            char ch = key.charAt(j);
+            if (slotOf[ch] < 0) {
+                slotChar[slots] = ch;
+                slotOf[ch] = slots++;
+            }
+            slotKeyCount[slotOf[ch]]++;
+        }
+        int[] slotKeyStart = new int[slots];
+        for (int slot = 1; slot < slots; slot++) {
+            slotKeyStart[slot] = slotKeyStart[slot - 1] + slotKeyCount[slot - 1];
+        }
+        int[] keyPositions = new int[usedKeyLength]; // ascending within each slot
+        int[] fill = Arrays.copyOf(slotKeyStart, slots);
+        for (int j = 0; j < usedKeyLength; j++) {
+            keyPositions[fill[slotOf[key.charAt(j)]]++] = j;
+        }
+        reporter.step(2, "Expanded key to match input length.");
+
+        // Step 3: Assign values - only each list's size is needed; values are recomputed from CounterRandom
+        long[] slotSize = new long[slots];
+        if (usedKeyLength > 0) {
+            long fullCycles = length / keyLength;
+            long remainder = length % keyLength;
+            for (int j = 0; j < usedKeyLength; j++) {
+                slotSize[slotOf[key.charAt(j)]] += fullCycles + (j < remainder ? 1 : 0);
+            }
+        }
+        reporter.step(3, "Assigned values to expanded key characters.");
+
+        // Step 4: Rotate values, as a per-slot index shift
+        int steps = config.salt % 5;
+        long[] slotRotation = new long[slots];
+        long[] slotFrequency = new long[slots];
+        boolean anyInKey = false;
+        for (int slot = 0; slot < slots; slot++) {
+            long distance = steps % slotSize[slot];
+            slotRotation[slot] = distance < 0 ? distance + slotSize[slot] : distance;
+            slotFrequency[slot] = histogram[slotChar[slot]];
+            anyInKey |= slotFrequency[slot] > 0;
+        }
+        reporter.step(4, "Rotated value lists.");
+
+        // Step 5: Compute weighted sum (pass 2) - the mode's strategy is resolved once, then one loop per mode
+        ValueTable table = new ValueTable(slotOf, slotChar, slotSize, slotRotation, slotKeyCount, slotKeyStart,
+            keyPositions, keyLength, slotFrequency, random);
+        int sum = 0;
+        if (strategy == null) {
+            // As in EncryptionEngine, an unknown mode only fails once a character matches the key
+            if (anyInKey) {
+                throw new IllegalArgumentException("Unsupported mode: " + config.mode);
+            }
+        } else if (strategy == WeightingStrategy.BASIC) {
+            sum = basicSum(source, buffer, table, length);
+        } else if (strategy == WeightingStrategy.WEIGHTED) {
+            sum = weightedSum(source, buffer, table, length);
+        } else if (strategy == WeightingStrategy.CHAOTIC) {
+            sum = chaoticSum(source, buffer, table, length, config.salt);
+        } else {
+            sum = strategySum(source, buffer, table, length, strategy, config.salt);
+        }
+        reporter.step(5, "Computed complex weighted sum: ", sum);
+
+        // Step 6: Add salt
+        sum += config.salt;
+
+        // Step 7: Final validations and hash
+        result.finalSum = sum;
+        result.checksum = EncryptionEngine.computeSHA256(sum + key + config.mode);
+        result.validationCode = EncryptionEngine.computeSHA256("VALIDATE" + key + sum).substring(0, 12);
+        reporter.step(7, "Generated checksum and validation code.");
+
+        return result;
+    }
+
+    // 2. Pass 2, one loop per mode; each re-reads the input and checks it still has the pass 1 length
+    private int basicSum(ReaderSource source, char[] buffer, ValueTable table, long length) throws IOException {
+        int sum = 0;
+        long position = 0;
+        try (Reader in = source.open()) {
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                for (int i = 0; i < read; i++, position++) {
+                    int slot = table.slotOf[normalize(buffer[i])];
+                    if (slot >= 0) {
+                        sum += table.value(slot, position);
+                    }
+                }
+            }
+        }
+        checkLength(position, length);
+        return sum;
+    }
+
+    private int weightedSum(ReaderSource source, char[] buffer, ValueTable table, long length) throws IOException {
+        int sum = 0;
+        long position = 0;
+        try (Reader in = source.open()) {
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                for (int i = 0; i < read; i++, position++) {
+                    int slot = table.slotOf[normalize(buffer[i])];
+                    if (slot >= 0) {
+                        sum += (int) (table.value(slot, position) + (position + 1) * table.slotFrequency[slot]);
+                    }
+                }
+            }
+        }
+        checkLength(position, length);
+        return sum;
+    }
+
+    private int chaoticSum(ReaderSource source, char[] buffer, ValueTable table, long length, int salt)
+            throws IOException {
+        int sum = 0;
+        long position = 0;
+        try (Reader in = source.open()) {
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                for (int i = 0; i < read; i++, position++) {
+                    int slot = table.slotOf[normalize(buffer[i])];
+                    if (slot >= 0) {
+                        sum += (int) (table.value(slot, position) * (position + 1) + salt % (position + 2));
+                    }
+                }
+            }
+        }
+        checkLength(position, length);
+        return sum;
+    }
+
+    // Only reached for inputs of at most Integer.MAX_VALUE characters, so position and frequency fit an int
+    private int strategySum(ReaderSource source, char[] buffer, ValueTable table, long length,
+                            WeightingStrategy strategy, int salt) throws IOException {
+        int sum = 0;
+        long position = 0;
+        try (Reader in = source.open()) {
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                for (int i = 0; i < read; i++, position++) {
+                    int slot = table.slotOf[normalize(buffer[i])];
+                    if (slot >= 0) {
+                        sum += strategy.weigh(table.value(slot, position), (int) position,
+                            (int) table.slotFrequency[slot], salt);
+                    }
+                }
+            }
+        }
+        checkLength(position, length);
+        return sum;
+    }
+
+    private static void checkLength(long position, long length) throws IOException {
+        if (position != length) {
+            throw new IOException("Input changed between passes");
+        }
+    }
+
+    private static boolean isCustom(WeightingStrategy strategy) {
+        return strategy != null && strategy != WeightingStrategy.BASIC && strategy != WeightingStrategy.WEIGHTED
+            && strategy != WeightingStrategy.CHAOTIC;
+    }
+
+    private char normalize(char ch) {
+        return config.caseSensitive ? ch : Character.toLowerCase(ch);
+    }
+
+    // Per-slot tables from steps 2-4; value() recomputes a rotated list element from its input position
+    private static final class ValueTable {
+        final int[] slotOf;
+        final long[] slotFrequency;
+        private final char[] slotChar;
+        private final long[] slotSize;
+        private final long[] slotRotation;
+        private final int[] slotKeyCount;
+        private final int[] slotKeyStart;
+        private final int[] keyPositions;
+        private final int keyLength;
+        private final CounterRandom random;
+
+        ValueTable(int[] slotOf, char[] slotChar, long[] slotSize, long[] slotRotation, int[] slotKeyCount,
+                   int[] slotKeyStart, int[] keyPositions, int keyLength, long[] slotFrequency, CounterRandom random) {
+            this.slotOf = slotOf;
+            this.slotChar = slotChar;
+            this.slotSize = slotSize;
+            this.slotRotation = slotRotation;
+            this.slotKeyCount = slotKeyCount;
+            this.slotKeyStart = slotKeyStart;
+            this.keyPositions = keyPositions;
+            this.keyLength = keyLength;
+            this.slotFrequency = slotFrequency;
+            this.random = random;
+        }
+
+        // Index into the rotated list, then the input position that list element came from
+        int value(int slot, long position) {
+            long size = slotSize[slot];
+            long index = position % size - slotRotation[slot];
+            if (index < 0) {
+                index += size;
+            }
+            int perCycle = slotKeyCount[slot];
+            long origin = (index / perCycle) * keyLength + keyPositions[slotKeyStart[slot] + (int) (index % perCycle)];
+            return (random.nextInt(origin, 100) + 1) * (slotChar[slot] % 5 + 1) + (int) (origin + 1);
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            int pick = random.nextInt(100);
+            text[i] = pick < 80 ? (char) ('a' + random.nextInt(26))
+                : pick < 95 ? (char) ('A' + random.nextInt(26)) : (char) (0x0400 + random.nextInt(64));
+        }
+        return new String(text);
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registry of weighting modes by name: "basic", "weighted", "chaotic" plus any registered custom modes.
+//
+// A mode cannot be replaced once registered, so a name always means the same computation (the mode
+// name also goes into the checksum). Lookups are lock-free and happen once per encrypt call.
+final class WeightingStrategies {
+
+    private static final ConcurrentHashMap<String, WeightingStrategy> strategies = new ConcurrentHashMap<>();
+
+    static {
+        strategies.put("basic", WeightingStrategy.BASIC);
+        strategies.put("weighted", WeightingStrategy.WEIGHTED);
+        strategies.put("chaotic", WeightingStrategy.CHAOTIC);
+    }
+
+    private WeightingStrategies() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // A custom mode behaves the same in every engine
+        register("xor", (value, position, frequency, salt) -> (value ^ position) + frequency * salt);
+        Random inputs = new Random(3);
+        boolean identical = true;
+        for (int trial = 0; trial < 200; trial++) {
+            String input = randomText(inputs, inputs.nextInt(300));
+            String key = randomText(inputs, 1 + inputs.nextInt(20));
+            EncryptionConfig config = new EncryptionConfig(inputs.nextBoolean(), "xor", inputs.nextInt(600), false);
+            long seed = inputs.nextLong();
+            int expected = new EncryptionEngine(config, new CounterRandom(seed)).encrypt(input, key).finalSum;
+            identical &= expected == new FastEncryptionEngine(config, new CounterRandom(seed)).encrypt(input, key).finalSum
+                && expected == new StreamingEncryptionEngine(config, new CounterRandom(seed)).encrypt(input, key).finalSum;
+        }
+        System.out.println("Custom mode identical across engines: " + identical);
+
+        // Built-in loops against the generic loop running the same formula
+        register("weighted-generic", (value, position, frequency, salt) -> value + (position + 1) * frequency);
+        String text = randomText(inputs, 1024 * 1024);
+        for (String mode : new String[]{"basic", "weighted", "chaotic", "weighted-generic", "xor"}) {
+            EncryptionEngine engine = new EncryptionEngine(new EncryptionConfig(false, mode, 321, false), new Random(7));
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                engine.encrypt(text, "benchmarkKey");
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("%-17s %.1f MB/s%n", mode, 1 / (best / 1e9));
+        }
+    }
+
+    // 1. Add a custom mode; names already in use are rejected
+    public static void register(String mode, WeightingStrategy strategy) {
+        if (mode == null || mode.isEmpty() || strategy == null) {
+            throw new IllegalArgumentException("Mode name and strategy are required");
+        }
+        if (strategies.putIfAbsent(mode, strategy) != null) {
+            throw new IllegalArgumentException("Mode already registered: " + mode);
+        }
+    }
+
+    // 2. The strategy for a mode name, or null if there is none
+    public static WeightingStrategy forMode(String mode) {
+        return mode == null ? null : strategies.get(mode);
+    }
+
+    public static boolean isRegistered(String mode) {
+        return forMode(mode) != null;
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = random.nextInt(10) < 9 ? (char) ('a' + random.nextInt(26)) : (char) ('A' + random.nextInt(26));
+        }
+        return new String(text);
+    }
+}
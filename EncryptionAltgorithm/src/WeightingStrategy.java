@@ -0,0 +1,17 @@
+// Step 5 of the encryption pipeline: what one input character that occurs in the key adds to the sum.
+//
+// value is the character's rotated list value at this position, position is 0-based, frequency is how
+// often the character occurs in the normalized input and salt is config.salt; contributions are summed
+// with wrapping int addition. EncryptionConfig.mode names a strategy in WeightingStrategies, resolved
+// once per encrypt call. The built-in strategies below are recognised by identity and each engine runs a
+// specialised loop for them; any other strategy runs a generic loop that calls weigh() per matching
+// character. Implementations must be stateless, so engines may call them from several threads.
+@FunctionalInterface
+interface WeightingStrategy {
+
+    WeightingStrategy BASIC = (value, position, frequency, salt) -> value;
+    WeightingStrategy WEIGHTED = (value, position, frequency, salt) -> value + (position + 1) * frequency;
+    WeightingStrategy CHAOTIC = (value, position, frequency, salt) -> value * (position + 1) + salt % (position + 2);
+
+    int weigh(int value, int position, int frequency, int salt);
+}